@@ -0,0 +1,174 @@
+// benchmarks/src/bench/BenchmarkData.java
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import model.AuthService;
+import model.Database;
+
+/**
+ * Seeds the benchmark database with a configurable number of books, members and
+ * historical loans. Seeding is incremental: rerunning with the same or a smaller
+ * volume does nothing, a larger volume only adds the missing rows.
+ *
+ * Volumes: -Dbench.books (default 10000), -Dbench.users (2000), -Dbench.loans (50000).
+ */
+public final class BenchmarkData {
+    public static final int BOOKS = Integer.getInteger("bench.books", 10_000);
+    public static final int USERS = Integer.getInteger("bench.users", 2_000);
+    public static final int LOANS = Integer.getInteger("bench.loans", 50_000);
+
+    public static final String USERNAME_PREFIX = "bench_user_";
+    public static final String PASSWORD = "bench-password";
+    // Large enough that checkout benchmarks never run a title out of copies
+    static final int COPIES_PER_BOOK = 1_000_000;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] WORDS = {
+            "river", "shadow", "garden", "night", "empire", "silent", "winter", "golden", "lost", "city",
+            "stone", "dream", "ocean", "fire", "house", "secret", "storm", "journey", "light", "forest",
+            "history", "modern", "guide", "science", "war", "love", "mountain", "island", "machine", "song"};
+    private static final String[] SURNAMES = {
+            "Smith", "Garcia", "Okafor", "Tanaka", "Novak", "Silva", "Muller", "Rossi", "Khan", "Larsen"};
+
+    private BenchmarkData() {}
+
+    static void ensureSeeded() throws SQLException {
+        Random random = new Random(42);
+        seedBooks(random);
+        seedUsers();
+        seedLoans(random);
+    }
+
+    static String isbnOf(int n) {
+        return String.format("B%012d", n);
+    }
+
+    static String titleOf(Random random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return title.toString();
+    }
+
+    private static void seedBooks(Random random) throws SQLException {
+        int existing = count("SELECT COUNT(*) FROM books WHERE isbn LIKE 'B%'");
+        if (existing >= BOOKS) {
+            return;
+        }
+        String sql = "INSERT IGNORE INTO books (title, author, isbn, genre, publication_year, quantity, available_quantity) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int n = existing; n < BOOKS; n++) {
+                stmt.setString(1, titleOf(random));
+                stmt.setString(2, WORDS[random.nextInt(WORDS.length)] + " " + SURNAMES[random.nextInt(SURNAMES.length)]);
+                stmt.setString(3, isbnOf(n));
+                stmt.setString(4, "Bench");
+                stmt.setInt(5, 1900 + random.nextInt(125));
+                stmt.setInt(6, COPIES_PER_BOOK);
+                stmt.setInt(7, COPIES_PER_BOOK);
+                stmt.addBatch();
+                if ((n + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static void seedUsers() throws SQLException {
+        int existing = count("SELECT COUNT(*) FROM users WHERE username LIKE '" + USERNAME_PREFIX + "%'");
+        if (existing >= USERS) {
+            return;
+        }
+        String sql = "INSERT IGNORE INTO users (username, password, role, full_name, email) VALUES (?, ?, 'member', ?, ?)";
+        // One salt for every bench user is fine here and saves hashing the password USERS times
+        String passwordHash = AuthService.hashPassword(PASSWORD);
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int n = existing; n < USERS; n++) {
+                stmt.setString(1, USERNAME_PREFIX + n);
+                stmt.setString(2, passwordHash);
+                stmt.setString(3, "Bench Member " + n);
+                stmt.setString(4, USERNAME_PREFIX + n + "@bench.local");
+                stmt.addBatch();
+                if ((n + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    // Returned loans spread over the last two years, so loadLoans has history to join and sort
+    private static void seedLoans(Random random) throws SQLException {
+        int existing = count("SELECT COUNT(*) FROM book_loans");
+        if (existing >= LOANS) {
+            return;
+        }
+        int[] bookIds = ids("SELECT id FROM books WHERE isbn LIKE 'B%'");
+        int[] userIds = ids("SELECT id FROM users WHERE username LIKE '" + USERNAME_PREFIX + "%'");
+        String sql = "INSERT INTO book_loans (book_id, user_id, loan_date, due_date, return_date, status) " +
+                "VALUES (?, ?, DATE_SUB(CURRENT_DATE(), INTERVAL ? DAY), " +
+                "DATE_SUB(CURRENT_DATE(), INTERVAL ? DAY), DATE_SUB(CURRENT_DATE(), INTERVAL ? DAY), 'returned')";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int n = existing; n < LOANS; n++) {
+                int age = 15 + random.nextInt(730);
+                stmt.setInt(1, bookIds[random.nextInt(bookIds.length)]);
+                stmt.setInt(2, userIds[random.nextInt(userIds.length)]);
+                stmt.setInt(3, age);
+                stmt.setInt(4, age - 14);
+                stmt.setInt(5, age - random.nextInt(14));
+                stmt.addBatch();
+                if ((n + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                    conn.commit();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    static int count(String sql) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static int[] ids(String sql) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            int[] ids = new int[16];
+            int n = 0;
+            while (rs.next()) {
+                if (n == ids.length) {
+                    ids = java.util.Arrays.copyOf(ids, n * 2);
+                }
+                ids[n++] = rs.getInt(1);
+            }
+            return java.util.Arrays.copyOf(ids, n);
+        }
+    }
+}
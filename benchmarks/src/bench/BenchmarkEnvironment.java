@@ -0,0 +1,80 @@
+// benchmarks/src/bench/BenchmarkEnvironment.java
+package bench;
+
+import java.lang.reflect.Method;
+import model.Database;
+
+/**
+ * Points the application's Database class at the benchmark database and seeds it.
+ *
+ * By default the benchmarks use a library_bench schema on the local MySQL server
+ * (override with -Dlibrary.db.url/user/password). With -Dbench.embedded=true and
+ * MariaDB4j on the classpath, a throwaway embedded MariaDB server is started
+ * instead. Must run before anything touches model.Database, since Database
+ * reads its settings once when the class is loaded.
+ */
+public final class BenchmarkEnvironment {
+    private static boolean configured;
+    private static boolean initialized;
+
+    private BenchmarkEnvironment() {}
+
+    public static synchronized void init() throws Exception {
+        if (initialized) {
+            return;
+        }
+        configure();
+        BenchmarkData.ensureSeeded();
+        initialized = true;
+    }
+
+    /**
+     * Points Database at the benchmark server and migrates the schema, without seeding.
+     * DataGenerator and LoadDriver use this and bring their own data.
+     */
+    static synchronized void configure() throws Exception {
+        if (configured) {
+            return;
+        }
+        if (Boolean.getBoolean("bench.embedded")) {
+            startEmbeddedServer();
+        } else if (System.getProperty("library.db.url") == null) {
+            System.setProperty("library.db.url",
+                    "jdbc:mysql://localhost:3306/library_bench?createDatabaseIfNotExist=true");
+        }
+        // Every benchmark thread holds at most one connection at a time
+        if (System.getProperty("library.db.pool.maxSize") == null) {
+            System.setProperty("library.db.pool.maxSize", "32");
+        }
+
+        Database.initializeDatabase();
+        configured = true;
+    }
+
+    // MariaDB4j is optional, so it is driven reflectively
+    private static void startEmbeddedServer() throws Exception {
+        int port = Integer.getInteger("bench.embedded.port", 3307);
+        Class<?> builderClass = Class.forName("ch.vorburger.mariadb4j.DBConfigurationBuilder");
+        Object builder = builderClass.getMethod("newBuilder").invoke(null);
+        builderClass.getMethod("setPort", int.class).invoke(builder, port);
+        Object config = builderClass.getMethod("build").invoke(builder);
+
+        Class<?> dbClass = Class.forName("ch.vorburger.mariadb4j.DB");
+        Method newEmbeddedDB = dbClass.getMethod("newEmbeddedDB",
+                Class.forName("ch.vorburger.mariadb4j.DBConfiguration"));
+        Object db = newEmbeddedDB.invoke(null, config);
+        dbClass.getMethod("start").invoke(db);
+        dbClass.getMethod("createDB", String.class).invoke(db, "library_bench");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                dbClass.getMethod("stop").invoke(db);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }));
+
+        System.setProperty("library.db.url", "jdbc:mysql://localhost:" + port + "/library_bench");
+        System.setProperty("library.db.user", "root");
+        System.setProperty("library.db.password", "");
+    }
+}
@@ -0,0 +1,94 @@
+// benchmarks/src/bench/CirculationBenchmark.java
+package bench;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import model.CirculationQueue;
+import model.CirculationResult;
+import model.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checkout and return through Database.loanBook / Database.returnBook, and
+ * through the group-committing CirculationQueue. Run with -t 16 or more to see
+ * the queue coalesce desks into shared commits.
+ *
+ * Throughput gives operations per second; SampleTime gives the latency
+ * distribution (p50, p90, p99, ...) in the JMH report.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CirculationBenchmark {
+    private static final int LOANS_PER_ITERATION = Integer.getInteger("bench.returnsPerIteration", 20_000);
+
+    // Open loans created ahead of each iteration so returnBook measures only the return
+    @State(Scope.Thread)
+    public static class OpenLoans {
+        final Deque<Integer> loanIds = new ArrayDeque<>();
+
+        @Setup(Level.Iteration)
+        public void createLoans(LibraryState library) throws SQLException {
+            int userId = library.randomUserId();
+            while (loanIds.size() < LOANS_PER_ITERATION) {
+                List<Integer> books = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    books.add(library.randomBookId());
+                }
+                for (CirculationResult result : Database.loanBooks(userId, books, 14)) {
+                    if (result.isSuccess()) {
+                        loanIds.add(result.getLoanId());
+                    }
+                }
+            }
+        }
+
+        int next(LibraryState library) throws SQLException {
+            Integer loanId = loanIds.poll();
+            if (loanId != null) {
+                return loanId;
+            }
+            // Ran dry mid-iteration; raise bench.returnsPerIteration if this shows up in profiles
+            List<CirculationResult> results = Database.loanBooks(library.randomUserId(),
+                    java.util.Collections.singletonList(library.randomBookId()), 14);
+            return results.get(0).getLoanId();
+        }
+    }
+
+    @Benchmark
+    public boolean loanBook(LibraryState library) throws SQLException {
+        return Database.loanBook(library.randomBookId(), library.randomUserId(), 14).isSuccess();
+    }
+
+    @Benchmark
+    public boolean returnBook(LibraryState library, OpenLoans openLoans) throws SQLException {
+        return Database.returnBook(openLoans.next(library));
+    }
+
+    @Benchmark
+    public boolean queuedLoanBook(LibraryState library) {
+        return CirculationQueue.shared().loan(library.randomBookId(), library.randomUserId(), 14)
+                .join().isSuccess();
+    }
+
+    @Benchmark
+    public boolean queuedReturnBook(LibraryState library, OpenLoans openLoans) throws SQLException {
+        return CirculationQueue.shared().returnLoan(openLoans.next(library)).join().isSuccess();
+    }
+}
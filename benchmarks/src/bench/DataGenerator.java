@@ -0,0 +1,382 @@
+// benchmarks/src/bench/DataGenerator.java
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import model.AuthService;
+import model.ChangeLog;
+import model.Database;
+import model.LoanCounters;
+
+/**
+ * Fills users, books and book_loans with production-sized, skewed data for
+ * LoadDriver and for looking at query plans at real volumes.
+ *
+ * Book popularity, member activity, title words, authors and genres all follow
+ * Zipf distributions, so a few titles carry most of the loans and a few words
+ * match most of the catalog, as in a real library. Popular books get more
+ * copies. Loans span the last two years; about 3% are still out (borrowed or
+ * overdue) and never more than a book has copies, and available_quantity is
+ * set to match at the end.
+ *
+ * Rows are written by gen.threads workers with 1000-row INSERTs, one chunk of
+ * rows per worker at a time. Generated rows are marked (ISBN "G...", username
+ * "gen_user_..."), and rerunning only adds what is missing. Books and users are
+ * the same on every run; loans are not.
+ *
+ * Usage: java -Dgen.books=5000000 -Dgen.users=500000 -Dgen.loans=20000000 bench.DataGenerator
+ */
+public final class DataGenerator {
+    static final String ISBN_PREFIX = "G";
+    static final String USERNAME_PREFIX = "gen_user_";
+
+    private static final int BOOKS = Integer.getInteger("gen.books", 100_000);
+    private static final int USERS = Integer.getInteger("gen.users", 20_000);
+    private static final int LOANS = Integer.getInteger("gen.loans", 1_000_000);
+    private static final int THREADS = Integer.getInteger("gen.threads", 4);
+    // Zipf exponents; larger is more skewed
+    static final double BOOK_SKEW = Double.parseDouble(System.getProperty("gen.bookSkew", "1.0"));
+    static final double USER_SKEW = Double.parseDouble(System.getProperty("gen.userSkew", "0.8"));
+    static final double WORD_SKEW = 1.1;
+
+    private static final int ROWS_PER_INSERT = 1000;
+    private static final int CHUNK_ROWS = 20_000;
+    private static final int HISTORY_DAYS = 730;
+    private static final int OPEN_WINDOW_DAYS = 45;
+    private static final int LOAN_DAYS = 14;
+
+    private static final String[] GENRES = {
+            "Fiction", "Mystery", "Children", "History", "Science", "Romance", "Fantasy", "Biography",
+            "Travel", "Cooking", "Poetry", "Art"};
+    private static final String[] FIRST_NAMES = {
+            "Anna", "James", "Maria", "Wei", "Fatima", "John", "Sofia", "Kenji", "Amara", "Lucas",
+            "Olga", "Ravi", "Chloe", "Diego", "Ingrid", "Omar", "Mei", "Peter", "Aisha", "Tomas"};
+    private static final String[] SURNAMES = {
+            "Smith", "Garcia", "Okafor", "Tanaka", "Novak", "Silva", "Muller", "Rossi", "Khan", "Larsen",
+            "Nguyen", "Cohen", "Ivanova", "Mensah", "Kowalski", "Dubois", "Haddad", "Lindqvist", "Moreau", "Park"};
+
+    /** Title words, most common first: real words, then made-up ones for the long tail. */
+    static final String[] VOCABULARY = vocabulary();
+
+    private DataGenerator() {}
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkEnvironment.configure();
+        long started = System.nanoTime();
+        generateUsers();
+        generateBooks();
+        generateLoans();
+        System.out.printf("Done in %.0f s%n", (System.nanoTime() - started) / 1e9);
+        Database.shutdown();
+    }
+
+    private static String[] vocabulary() {
+        Set<String> words = new LinkedHashSet<>(Arrays.asList(
+                "the", "river", "shadow", "garden", "night", "empire", "silent", "winter", "golden", "lost",
+                "city", "stone", "dream", "ocean", "fire", "house", "secret", "storm", "journey", "light",
+                "forest", "history", "modern", "guide", "science", "war", "love", "mountain", "island", "machine"));
+        String[] syllables = {"ka", "lo", "mi", "ren", "ta", "vo", "shi", "an", "el", "dor", "um", "bra", "qui", "zen", "pa", "lur"};
+        Random random = new Random(7);
+        while (words.size() < 3000) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 2 + random.nextInt(2); i > 0; i--) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    static String personName(int n) {
+        String name = FIRST_NAMES[n % FIRST_NAMES.length] + " " + SURNAMES[(n / FIRST_NAMES.length) % SURNAMES.length];
+        int round = n / (FIRST_NAMES.length * SURNAMES.length);
+        return round == 0 ? name : name + " " + (round + 1);
+    }
+
+    // ------------------------------------------------------------------ users
+
+    private static void generateUsers() throws Exception {
+        int existing = BenchmarkData.count("SELECT COUNT(*) FROM users WHERE username LIKE 'gen\\_user\\_%'");
+        if (existing >= USERS) {
+            return;
+        }
+        // One salt for every generated member; hashing millions of passwords would take hours
+        String passwordHash = AuthService.hashPassword(BenchmarkData.PASSWORD);
+        String sql = "INSERT IGNORE INTO users (username, password, role, full_name, email) VALUES ";
+        String row = "(?, ?, 'member', ?, ?)";
+        runChunks("users", resumeFrom(existing), USERS, (conn, from, to, random) -> {
+            for (int start = from; start < to; start += ROWS_PER_INSERT) {
+                int end = Math.min(to, start + ROWS_PER_INSERT);
+                try (PreparedStatement stmt = conn.prepareStatement(multiRow(sql, row, end - start))) {
+                    int p = 1;
+                    for (int n = start; n < end; n++) {
+                        stmt.setString(p++, USERNAME_PREFIX + n);
+                        stmt.setString(p++, passwordHash);
+                        stmt.setString(p++, personName(n));
+                        stmt.setString(p++, USERNAME_PREFIX + n + "@gen.local");
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------ books
+
+    private static void generateBooks() throws Exception {
+        int existing = BenchmarkData.count("SELECT COUNT(*) FROM books WHERE isbn LIKE 'G%'");
+        if (existing >= BOOKS) {
+            return;
+        }
+        Zipf popularity = new Zipf(BOOKS, BOOK_SKEW);
+        Zipf words = new Zipf(VOCABULARY.length, WORD_SKEW);
+        Zipf authors = new Zipf(Math.max(1, BOOKS / 20), 0.9);
+        Zipf genres = new Zipf(GENRES.length, 1.0);
+        int thisYear = LocalDate.now().getYear();
+
+        String sql = "INSERT IGNORE INTO books (title, author, isbn, genre, publication_year, quantity, available_quantity) VALUES ";
+        String row = "(?, ?, ?, ?, ?, ?, ?)";
+        runChunks("books", resumeFrom(existing), BOOKS, (conn, from, to, random) -> {
+            for (int start = from; start < to; start += ROWS_PER_INSERT) {
+                int end = Math.min(to, start + ROWS_PER_INSERT);
+                try (PreparedStatement stmt = conn.prepareStatement(multiRow(sql, row, end - start))) {
+                    int p = 1;
+                    for (int n = start; n < end; n++) {
+                        int copies = copiesFor(popularity.rankOfPosition(n), random);
+                        stmt.setString(p++, title(words, random));
+                        stmt.setString(p++, personName(authors.sample(random) - 1));
+                        stmt.setString(p++, isbnOf(n));
+                        stmt.setString(p++, GENRES[genres.sample(random) - 1]);
+                        stmt.setInt(p++, thisYear - (int) Math.min(200, Math.abs(random.nextGaussian()) * 30));
+                        stmt.setInt(p++, copies);
+                        stmt.setInt(p++, copies);
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+        });
+    }
+
+    static String isbnOf(int n) {
+        return String.format("%s%012d", ISBN_PREFIX, n);
+    }
+
+    // The most borrowed titles are stocked in bulk, the long tail has one or two copies
+    private static int copiesFor(int popularityRank, Random random) {
+        return 1 + random.nextInt(2) + (int) Math.min(30, 60 / Math.sqrt(popularityRank));
+    }
+
+    private static String title(Zipf words, Random random) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            String word = VOCABULARY[words.sample(random) - 1];
+            if (title.length() > 0) {
+                title.append(' ');
+            }
+            title.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return title.toString();
+    }
+
+    // ------------------------------------------------------------------ loans
+
+    private static void generateLoans() throws Exception {
+        int existing = BenchmarkData.count("SELECT COUNT(*) FROM book_loans bl JOIN users u ON u.id = bl.user_id " +
+                "WHERE u.username LIKE 'gen\\_user\\_%'");
+        if (existing < LOANS) {
+            insertLoans(LOANS - existing);
+        }
+        reconcileAvailability();
+        System.out.println("Recounting members' loans...");
+        LoanCounters.rebuild();
+    }
+
+    private static void insertLoans(int count) throws Exception {
+        // Book positions follow ISBN order, which is how popularity was assigned
+        int[] bookIds = new int[BOOKS];
+        int[] copies = new int[BOOKS];
+        int books = 0;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, quantity FROM books WHERE isbn LIKE 'G%' ORDER BY isbn LIMIT ?")) {
+            stmt.setInt(1, BOOKS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bookIds[books] = rs.getInt(1);
+                    copies[books++] = rs.getInt(2);
+                }
+            }
+        }
+        int[] userIds = BenchmarkData.ids("SELECT id FROM users WHERE username LIKE 'gen\\_user\\_%' ORDER BY id");
+        if (books == 0 || userIds.length == 0) {
+            throw new IllegalStateException("Generate books and users first");
+        }
+
+        AtomicIntegerArray out = openLoansPerBook(bookIds, books);
+        Zipf popularity = new Zipf(books, BOOK_SKEW);
+        Zipf activity = new Zipf(userIds.length, USER_SKEW);
+        LocalDate today = LocalDate.now();
+
+        String sql = "INSERT INTO book_loans (book_id, user_id, loan_date, due_date, return_date, status) VALUES ";
+        String row = "(?, ?, ?, ?, ?, ?)";
+        runChunks("loans", 0, count, (conn, from, to, random) -> {
+            for (int start = from; start < to; start += ROWS_PER_INSERT) {
+                int end = Math.min(to, start + ROWS_PER_INSERT);
+                try (PreparedStatement stmt = conn.prepareStatement(multiRow(sql, row, end - start))) {
+                    int p = 1;
+                    for (int n = start; n < end; n++) {
+                        int book = popularity.samplePosition(random);
+                        int age = random.nextInt(HISTORY_DAYS + 1);
+                        LocalDate loanDate = today.minusDays(age);
+                        boolean open = age < OPEN_WINDOW_DAYS && random.nextBoolean() && takeCopy(out, book, copies[book]);
+
+                        stmt.setInt(p++, bookIds[book]);
+                        stmt.setInt(p++, userIds[activity.samplePosition(random)]);
+                        stmt.setDate(p++, java.sql.Date.valueOf(loanDate));
+                        stmt.setDate(p++, java.sql.Date.valueOf(loanDate.plusDays(LOAN_DAYS)));
+                        if (open) {
+                            stmt.setNull(p++, java.sql.Types.DATE);
+                            stmt.setString(p++, age > LOAN_DAYS ? "overdue" : "borrowed");
+                        } else {
+                            int kept = Math.min(age, 1 + random.nextInt(28));
+                            stmt.setDate(p++, java.sql.Date.valueOf(loanDate.plusDays(kept)));
+                            stmt.setString(p++, "returned");
+                        }
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+        });
+    }
+
+    // Loans already out per book position, so a rerun does not lend more copies than exist
+    private static AtomicIntegerArray openLoansPerBook(int[] bookIds, int books) throws SQLException {
+        long[] positionById = new long[books];
+        for (int i = 0; i < books; i++) {
+            positionById[i] = ((long) bookIds[i] << 32) | i;
+        }
+        Arrays.sort(positionById);
+
+        AtomicIntegerArray out = new AtomicIntegerArray(books);
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT book_id, COUNT(*) FROM book_loans WHERE status <> 'returned' GROUP BY book_id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int found = Arrays.binarySearch(positionById, (long) rs.getInt(1) << 32);
+                int index = found >= 0 ? found : -found - 1;
+                if (index < books && (int) (positionById[index] >>> 32) == rs.getInt(1)) {
+                    out.set((int) positionById[index], rs.getInt(2));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean takeCopy(AtomicIntegerArray out, int book, int copies) {
+        while (true) {
+            int current = out.get(book);
+            if (current >= copies) {
+                return false;
+            }
+            if (out.compareAndSet(book, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void reconcileAvailability() throws SQLException {
+        System.out.println("Setting available copies from open loans...");
+        try (Connection conn = Database.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE books b LEFT JOIN (SELECT book_id, COUNT(*) AS open_loans FROM book_loans " +
+                            "WHERE status <> 'returned' GROUP BY book_id) o ON o.book_id = b.id " +
+                            "SET b.available_quantity = b.quantity - COALESCE(o.open_loans, 0) " +
+                            "WHERE b.isbn LIKE 'G%'")) {
+                stmt.executeUpdate();
+            }
+            // Running desks reload their catalog instead of missing the bulk change
+            ChangeLog.record(conn, ChangeLog.BOOKS, 0, ChangeLog.Op.RELOAD);
+        }
+    }
+
+    // ------------------------------------------------------------------ plumbing
+
+    private interface ChunkWriter {
+        void write(Connection conn, int from, int to, Random random) throws SQLException;
+    }
+
+    // Chunks in flight when an earlier run stopped may be incomplete; INSERT IGNORE fills them in
+    private static int resumeFrom(int existing) {
+        int from = Math.max(0, existing - THREADS * CHUNK_ROWS);
+        return from - from % CHUNK_ROWS;
+    }
+
+    private static String multiRow(String insert, String row, int rows) {
+        StringBuilder sql = new StringBuilder(insert.length() + rows * (row.length() + 2)).append(insert);
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append(row);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Writes rows [from, to) in chunks spread over THREADS workers. Each chunk
+     * has its own seeded Random, so the data does not depend on the thread count.
+     */
+    private static void runChunks(String what, int from, int to, ChunkWriter writer) throws Exception {
+        System.out.printf("Generating %s %,d..%,d%n", what, from, to);
+        long started = System.nanoTime();
+        AtomicLong nextChunk = new AtomicLong(from / CHUNK_ROWS);
+        AtomicLong written = new AtomicLong();
+        AtomicLong lastReport = new AtomicLong(started);
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                running.add(workers.submit(() -> {
+                    try (Connection conn = Database.getConnection()) {
+                        long chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) * CHUNK_ROWS < to) {
+                            int start = (int) Math.max(from, chunk * CHUNK_ROWS);
+                            int end = (int) Math.min(to, (chunk + 1) * CHUNK_ROWS);
+                            writer.write(conn, start, end, new Random(what.hashCode() * 1_000_003L + chunk));
+                            report(what, written.addAndGet(end - start), to - from, started, lastReport);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        System.out.printf("Generated %,d %s in %.0f s%n", written.get(), what, (System.nanoTime() - started) / 1e9);
+    }
+
+    private static void report(String what, long written, long total, long started, AtomicLong lastReport) {
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        if (now - last > 5_000_000_000L && lastReport.compareAndSet(last, now)) {
+            double seconds = (now - started) / 1e9;
+            System.out.printf("  %s: %,d / %,d (%.0f rows/s)%n", what, written, total, written / seconds);
+        }
+    }
+}
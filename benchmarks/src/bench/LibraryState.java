@@ -0,0 +1,36 @@
+// benchmarks/src/bench/LibraryState.java
+package bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seeded database shared by all benchmarks, plus the ids to pick from.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+    int[] bookIds;
+    int[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.init();
+        bookIds = BenchmarkData.ids("SELECT id FROM books WHERE isbn LIKE 'B%'");
+        userIds = BenchmarkData.ids("SELECT id FROM users WHERE username LIKE '" + BenchmarkData.USERNAME_PREFIX + "%'");
+    }
+
+    int randomBookId() {
+        return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+    }
+
+    int randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    String randomUsername() {
+        return BenchmarkData.USERNAME_PREFIX + ThreadLocalRandom.current().nextInt(userIds.length);
+    }
+}
@@ -0,0 +1,305 @@
+// benchmarks/src/bench/LoadDriver.java
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import model.BookRepository;
+import model.BookSearchIndex;
+import model.CirculationQueue;
+import model.CirculationResult;
+import model.Database;
+import model.QueryMetrics;
+import model.RetryPolicy;
+
+/**
+ * Simulates N circulation desks working against one database at the same time
+ * and reports what a library would notice: throughput, latency percentiles,
+ * deadlocks and whether any copy was lent twice.
+ *
+ * Each desk is a thread that repeatedly picks an operation by the configured
+ * mix: a checkout of a popular-skewed book to a popular-skewed member, a
+ * return of some open loan, or a catalog search for a skewed title word run
+ * the way BookManagementPanel.searchBooks does it. Checkouts and returns go
+ * through CirculationQueue like the desktop and the server do, or straight to
+ * Database with -Dload.mode=direct.
+ *
+ * Oversells are checked in the database before and after the run: books with
+ * negative availability, books with more open loans than copies, and books
+ * whose availability does not match their open loans. Only new violations
+ * count against the run; the exit status is 1 if there are any.
+ *
+ * Run DataGenerator first for realistic volumes (any data works).
+ * Settings: load.desks (8), load.seconds (60), load.warmupSeconds (10),
+ * load.mix ("checkout=40,return=35,search=25"), load.mode (queue|direct),
+ * load.searchLimit (200 rows fetched per search).
+ */
+public final class LoadDriver {
+    private static final int DESKS = Integer.getInteger("load.desks", 8);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 10);
+    private static final String MIX = System.getProperty("load.mix", "checkout=40,return=35,search=25");
+    private static final boolean DIRECT = "direct".equals(System.getProperty("load.mode", "queue"));
+    private static final int SEARCH_LIMIT = Integer.getInteger("load.searchLimit", 200);
+    private static final int OPEN_LOANS_PRELOADED = 100_000;
+    private static final int LOAN_DAYS = 14;
+
+    private enum Op { CHECKOUT, RETURN, SEARCH }
+
+    private final int[] bookIds;
+    private final int[] userIds;
+    private final Zipf popularity;
+    private final Zipf activity;
+    private final Zipf words = new Zipf(DataGenerator.VOCABULARY.length, DataGenerator.WORD_SKEW);
+    private final int[] mix = new int[Op.values().length]; // cumulative percentages
+    private final ConcurrentLinkedQueue<Integer> openLoans = new ConcurrentLinkedQueue<>();
+    private final BookRepository bookRepository = new BookRepository();
+
+    private final QueryMetrics.Stats[] latency = new QueryMetrics.Stats[Op.values().length];
+    private final AtomicLong noCopyLeft = new AtomicLong();
+    private final AtomicLong nothingToReturn = new AtomicLong();
+    private final AtomicLong failedDeadlocks = new AtomicLong();
+    private volatile boolean measuring;
+    private volatile boolean stopping;
+
+    private LoadDriver() throws SQLException {
+        bookIds = BenchmarkData.ids("SELECT id FROM books ORDER BY id");
+        userIds = BenchmarkData.ids("SELECT id FROM users WHERE role = 'member' ORDER BY id");
+        if (bookIds.length == 0 || userIds.length == 0) {
+            throw new IllegalStateException("No books or members; run bench.DataGenerator first");
+        }
+        popularity = new Zipf(bookIds.length, DataGenerator.BOOK_SKEW);
+        activity = new Zipf(userIds.length, DataGenerator.USER_SKEW);
+        parseMix();
+        for (Op op : Op.values()) {
+            latency[op.ordinal()] = QueryMetrics.forName("load." + op.name().toLowerCase());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkEnvironment.configure();
+        LoadDriver driver = new LoadDriver();
+        int exitCode = driver.run();
+        Database.shutdown();
+        System.exit(exitCode);
+    }
+
+    private void parseMix() {
+        int total = 0;
+        for (String part : MIX.split(",")) {
+            String[] kv = part.trim().split("=");
+            Op op = Op.valueOf(kv[0].trim().toUpperCase());
+            mix[op.ordinal()] = Integer.parseInt(kv[1].trim());
+            total += mix[op.ordinal()];
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("load.mix has no operations: " + MIX);
+        }
+        for (int i = 0; i < mix.length; i++) {
+            mix[i] = (i > 0 ? mix[i - 1] : 0) + mix[i] * 100 / total;
+        }
+        mix[mix.length - 1] = 100;
+    }
+
+    private int run() throws Exception {
+        System.out.printf("%,d books, %,d members, %d desks, %s, mix %s%n",
+                bookIds.length, userIds.length, DESKS, DIRECT ? "direct" : "queued", MIX);
+        System.out.println("Building the search index...");
+        BookSearchIndex.shared().ensureBuilt();
+        preloadOpenLoans();
+        Violations before = Violations.check();
+
+        CountDownLatch done = new CountDownLatch(DESKS);
+        for (int d = 0; d < DESKS; d++) {
+            Random random = new Random(1000 + d);
+            Thread desk = new Thread(() -> {
+                try {
+                    while (!stopping) {
+                        runOnce(random);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "desk-" + d);
+            desk.setDaemon(true);
+            desk.start();
+        }
+
+        Thread.sleep(WARMUP_SECONDS * 1000L);
+        for (QueryMetrics.Stats stats : latency) {
+            stats.reset();
+        }
+        long deadlocksBefore = RetryPolicy.CIRCULATION.getDeadlockCount();
+        long lockWaitsBefore = RetryPolicy.CIRCULATION.getLockWaitTimeoutCount();
+        noCopyLeft.set(0);
+        nothingToReturn.set(0);
+        failedDeadlocks.set(0);
+        measuring = true;
+        long started = System.nanoTime();
+        for (int s = 1; s <= SECONDS; s++) {
+            Thread.sleep(1000);
+            if (s % 10 == 0 && s < SECONDS) {
+                System.out.printf("  %3d s: %,.0f ops/s%n", s, totalCount() / ((System.nanoTime() - started) / 1e9));
+            }
+        }
+        measuring = false;
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        stopping = true;
+        done.await();
+        if (!DIRECT) {
+            CirculationQueue.shared().shutdown();
+        }
+
+        System.out.printf("%nResults over %.0f s%n", elapsed);
+        System.out.printf("%-10s %10s %10s %9s %9s %9s %9s %7s%n",
+                "operation", "count", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+        for (Op op : Op.values()) {
+            QueryMetrics.Stats stats = latency[op.ordinal()];
+            System.out.printf("%-10s %,10d %,10.1f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                    op.name().toLowerCase(), stats.getCount(), stats.getCount() / elapsed,
+                    stats.getP50Millis(), stats.getP95Millis(), stats.getP99Millis(),
+                    stats.getMaxMillis(), stats.getErrors());
+        }
+        System.out.printf("total      %,10d %,10.1f%n", totalCount(), totalCount() / elapsed);
+        System.out.printf("%nCheckouts refused (no copy left): %,d%n", noCopyLeft.get());
+        System.out.printf("Returns skipped (no open loan):   %,d%n", nothingToReturn.get());
+        System.out.printf("Deadlocks: %,d (failed after retries: %,d), lock wait timeouts: %,d%n",
+                RetryPolicy.CIRCULATION.getDeadlockCount() - deadlocksBefore, failedDeadlocks.get(),
+                RetryPolicy.CIRCULATION.getLockWaitTimeoutCount() - lockWaitsBefore);
+
+        Violations after = Violations.check();
+        System.out.printf("%nOversell check (before -> after):%n");
+        System.out.printf("  negative availability:        %,d -> %,d%n", before.negative, after.negative);
+        System.out.printf("  more loans out than copies:   %,d -> %,d%n", before.overLent, after.overLent);
+        System.out.printf("  availability != open loans:   %,d -> %,d%n", before.drifted, after.drifted);
+        boolean violated = after.negative > before.negative || after.overLent > before.overLent
+                || after.drifted > before.drifted;
+        System.out.println(violated ? "FAILED: new oversell violations" : "OK: no new oversell violations");
+        return violated ? 1 : 0;
+    }
+
+    private long totalCount() {
+        long total = 0;
+        for (QueryMetrics.Stats stats : latency) {
+            total += stats.getCount();
+        }
+        return total;
+    }
+
+    // Returns start with loans that were already out, most recent first
+    private void preloadOpenLoans() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id FROM book_loans WHERE status <> 'returned' ORDER BY id DESC LIMIT ?")) {
+            stmt.setInt(1, OPEN_LOANS_PRELOADED);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<Integer> ids = new ArrayList<>();
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+                Collections.shuffle(ids, new Random(1));
+                openLoans.addAll(ids);
+            }
+        }
+        System.out.printf("%,d open loans available to return%n", openLoans.size());
+    }
+
+    private void runOnce(Random random) {
+        int roll = random.nextInt(100);
+        Op op = Op.values()[0];
+        for (Op candidate : Op.values()) {
+            if (roll < mix[candidate.ordinal()]) {
+                op = candidate;
+                break;
+            }
+        }
+
+        QueryMetrics.Stats stats = latency[op.ordinal()];
+        long start = System.nanoTime();
+        try {
+            switch (op) {
+                case CHECKOUT:
+                    checkout(random);
+                    break;
+                case RETURN:
+                    returnLoan();
+                    break;
+                default:
+                    search(random);
+                    break;
+            }
+            stats.recordSince(start, false);
+        } catch (Exception e) {
+            stats.recordSince(start, true);
+            SQLException sql = e instanceof SQLException ? (SQLException) e
+                    : e.getCause() instanceof SQLException ? (SQLException) e.getCause() : null;
+            if (measuring && sql != null && RetryPolicy.isRetryable(sql)) {
+                failedDeadlocks.incrementAndGet();
+            } else if (!stopping) {
+                System.err.println(Thread.currentThread().getName() + " " + op + " failed: " + e);
+            }
+        }
+    }
+
+    private void checkout(Random random) throws Exception {
+        int bookId = bookIds[popularity.samplePosition(random)];
+        int userId = userIds[activity.samplePosition(random)];
+        CirculationResult result = DIRECT
+                ? Database.loanBooks(userId, Collections.singletonList(bookId), LOAN_DAYS).get(0)
+                : CirculationQueue.shared().loan(bookId, userId, LOAN_DAYS).get();
+        if (result.isSuccess()) {
+            openLoans.add(result.getLoanId());
+        } else if (measuring) {
+            noCopyLeft.incrementAndGet();
+        }
+    }
+
+    private void returnLoan() throws Exception {
+        Integer loanId = openLoans.poll();
+        if (loanId == null) {
+            if (measuring) {
+                nothingToReturn.incrementAndGet();
+            }
+            return;
+        }
+        if (DIRECT) {
+            Database.returnBook(loanId);
+        } else {
+            CirculationQueue.shared().returnLoan(loanId).get();
+        }
+    }
+
+    // As BookManagementPanel.searchBooks: index lookup, then fetch the rows by primary key
+    private void search(Random random) throws SQLException {
+        String term = DataGenerator.VOCABULARY[words.sample(random) - 1];
+        List<Integer> ids = BookSearchIndex.shared().search(term);
+        bookRepository.findByIds(ids.size() > SEARCH_LIMIT ? ids.subList(0, SEARCH_LIMIT) : ids);
+    }
+
+    private static final class Violations {
+        private static final String OPEN_LOANS = "SELECT book_id, COUNT(*) AS open_loans FROM book_loans " +
+                "WHERE status <> 'returned' GROUP BY book_id";
+
+        long negative;
+        long overLent;
+        long drifted;
+
+        static Violations check() throws SQLException {
+            Violations v = new Violations();
+            v.negative = BenchmarkData.count("SELECT COUNT(*) FROM books WHERE available_quantity < 0");
+            v.overLent = BenchmarkData.count("SELECT COUNT(*) FROM books b JOIN (" + OPEN_LOANS + ") o " +
+                    "ON o.book_id = b.id WHERE o.open_loans > b.quantity");
+            v.drifted = BenchmarkData.count("SELECT COUNT(*) FROM books b LEFT JOIN (" + OPEN_LOANS + ") o " +
+                    "ON o.book_id = b.id WHERE b.available_quantity <> b.quantity - COALESCE(o.open_loans, 0)");
+            return v;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+// benchmarks/src/bench/LoanListBenchmark.java
+package bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import model.BookLoan;
+import model.LoanFilter;
+import model.LoanRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The loan list queries behind LoanTableModel: one page of book_loans joined
+ * with books and users, newest first. firstPage is what the Loans tab loads
+ * when it opens; deepPage is a keyset page far down the full history, as when
+ * the table is scrolled or dragged there.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanListBenchmark {
+    private static final int PAGE_SIZE = 200; // As in LoanTableModel
+    private static final int DEEP_OFFSET = Integer.getInteger("bench.loanListOffset", 20000);
+    private static final LoanFilter ALL = new LoanFilter(LoanFilter.Status.ANY, null, null, null, null, false);
+
+    private final LoanRepository loanRepository = new LoanRepository();
+    private BookLoan deepKey;
+
+    @Setup(Level.Trial)
+    public void findDeepKey(LibraryState library) throws SQLException {
+        deepKey = loanRepository.findKeyAt(ALL, DEEP_OFFSET);
+        if (deepKey == null) {
+            throw new IllegalStateException("Fewer than " + DEEP_OFFSET + " loans; raise bench.loans");
+        }
+    }
+
+    @Benchmark
+    public void firstPage(LibraryState library, Blackhole blackhole) throws SQLException {
+        blackhole.consume(loanRepository.findPage(LoanFilter.activeOnly(), null, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public void deepPage(LibraryState library, Blackhole blackhole) throws SQLException {
+        blackhole.consume(loanRepository.findPage(ALL, deepKey, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,30 @@
+// benchmarks/src/bench/LoginBenchmark.java
+package bench;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import model.AuthService;
+import model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The sign-in LoginForm performs: user lookup plus PBKDF2 verification on the
+ * bounded hashing pool. Scale with -Dlibrary.auth.iterations to see the cost/latency trade-off.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class LoginBenchmark {
+    @Benchmark
+    public User login(LibraryState library) throws SQLException, AuthService.LockedOutException {
+        return AuthService.shared().authenticate(library.randomUsername(), BenchmarkData.PASSWORD);
+    }
+}
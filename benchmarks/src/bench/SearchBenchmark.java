@@ -0,0 +1,67 @@
+// benchmarks/src/bench/SearchBenchmark.java
+package bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import model.Book;
+import model.BookRepository;
+import model.BookSearchIndex;
+import model.Database;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Catalog search as BookManagementPanel.searchBooks runs it (index lookup plus
+ * a primary-key fetch), next to the old LIKE '%term%' query for comparison.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmark {
+    private static final String[] TERMS = {"river", "gold", "night city", "Garcia", "secret garden", "ston", "B00000001"};
+    private static final String LIKE_SQL = "SELECT id, title, author, isbn, genre, publication_year, quantity, " +
+            "available_quantity FROM books WHERE title LIKE ? OR author LIKE ? OR isbn LIKE ?";
+
+    private final BookRepository bookRepository = new BookRepository();
+
+    private static String randomTerm() {
+        return TERMS[ThreadLocalRandom.current().nextInt(TERMS.length)];
+    }
+
+    @Benchmark
+    public void indexedSearch(LibraryState library, Blackhole blackhole) throws SQLException {
+        List<Integer> ids = BookSearchIndex.shared().search(randomTerm());
+        for (Book book : bookRepository.findByIds(ids)) {
+            blackhole.consume(book);
+        }
+    }
+
+    @Benchmark
+    public void likeSearch(LibraryState library, Blackhole blackhole) throws SQLException {
+        String pattern = "%" + randomTerm() + "%";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LIKE_SQL)) {
+            stmt.setString(1, pattern);
+            stmt.setString(2, pattern);
+            stmt.setString(3, pattern);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getInt(1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// benchmarks/src/bench/Zipf.java
+package bench;
+
+import java.util.Random;
+
+/**
+ * Zipf-distributed ranks 1..n: rank k is drawn with probability proportional
+ * to 1 / k^exponent, so a few items are very popular and most are rarely used.
+ *
+ * Uses rejection-inversion sampling (Hoermann and Derflinger), which needs no
+ * tables and a constant number of steps per draw, so it also works for
+ * millions of items. permuted() spreads the popular ranks over the whole id
+ * range instead of piling them up at the lowest ids.
+ */
+final class Zipf {
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+    private final long step;
+    private final long inverseStep;
+
+    Zipf(int n, double exponent) {
+        if (n < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("n=" + n + ", exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        this.step = coprimeStep(n);
+        this.inverseStep = modInverse(step, n);
+    }
+
+    /**
+     * A rank in 1..n; 1 is the most likely.
+     */
+    int sample(Random random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * A position in 0..n-1, with the popular ranks scattered over the range.
+     */
+    int samplePosition(Random random) {
+        return positionOfRank(sample(random));
+    }
+
+    int positionOfRank(int rank) {
+        return (int) ((rank - 1) * step % n);
+    }
+
+    /**
+     * Inverse of positionOfRank.
+     */
+    int rankOfPosition(int position) {
+        return (int) ((long) position * inverseStep % n) + 1;
+    }
+
+    // Roughly the golden ratio of n, nudged until it shares no factor with n, so the mapping is a permutation
+    private static long coprimeStep(int n) {
+        long step = Math.max(1, (long) (n * 0.6180339887)) | 1;
+        while (gcd(step, n) != 1) {
+            step += 2;
+        }
+        return step % Math.max(1, n);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static long modInverse(long a, long m) {
+        if (m == 1) {
+            return 0;
+        }
+        long oldR = a, r = m, oldS = 1, s = 0;
+        while (r != 0) {
+            long q = oldR / r;
+            long t = r;
+            r = oldR - q * r;
+            oldR = t;
+            t = s;
+            s = oldS - q * s;
+            oldS = t;
+        }
+        return ((oldS % m) + m) % m;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, accurate near 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, accurate near 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
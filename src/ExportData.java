@@ -0,0 +1,42 @@
+// src/ExportData.java
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import model.DataExporter;
+
+/**
+ * Command-line export:
+ *
+ *   java -cp "bin:lib/mysql-connector-j-9.3.0.jar" ExportData loans loans.jsonl [from yyyy-mm-dd] [to yyyy-mm-dd]
+ *
+ * The dataset is books, users, loans or loan_archive; a .csv target is written as CSV, anything else as JSON Lines.
+ */
+public class ExportData {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ExportData <books|users|loans|loan_archive> <file.csv|file.jsonl> [from] [to]");
+            System.exit(2);
+        }
+        DataExporter.Dataset dataset = DataExporter.Dataset.valueOf(args[0].toUpperCase());
+        Path target = Paths.get(args[1]);
+        DataExporter.Format format = target.getFileName().toString().toLowerCase().endsWith(".csv")
+                ? DataExporter.Format.CSV
+                : DataExporter.Format.JSONL;
+        Date from = args.length > 2 ? Date.valueOf(args[2]) : null;
+        Date to = args.length > 3 ? Date.valueOf(args[3]) : null;
+
+        // The export holds its connection for as long as it runs; that is not a leak
+        if (System.getProperty("library.db.pool.leakDetectionMillis") == null) {
+            System.setProperty("library.db.pool.leakDetectionMillis", "0");
+        }
+
+        try {
+            long started = System.currentTimeMillis();
+            long rows = new DataExporter().export(dataset, format, target, from, to);
+            System.out.printf("Exported %,d rows to %s in %.1fs%n", rows, target,
+                    (System.currentTimeMillis() - started) / 1000.0);
+        } finally {
+            model.Database.shutdown();
+        }
+    }
+}
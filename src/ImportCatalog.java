@@ -0,0 +1,56 @@
+// src/ImportCatalog.java
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import model.CatalogImporter;
+
+/**
+ * Command-line catalog import:
+ *
+ *   java -cp "bin:lib/mysql-connector-j-9.3.0.jar" ImportCatalog catalog.csv [csv|tagged] [threads]
+ *
+ * Rerunning after an interruption resumes from catalog.csv.checkpoint.
+ */
+public class ImportCatalog {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ImportCatalog <file> [csv|tagged] [parser threads]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        if (!Files.isReadable(file)) {
+            System.err.println("Cannot read " + file);
+            System.exit(2);
+        }
+        CatalogImporter.Format format = args.length > 1
+                ? CatalogImporter.Format.valueOf(args[1].toUpperCase())
+                : CatalogImporter.formatOf(file);
+        int threads = args.length > 2
+                ? Integer.parseInt(args[2])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        model.Database.initializeDatabase();
+        try {
+            CatalogImporter importer = new CatalogImporter(file, format, threads);
+            long[] lastReport = {0};
+            importer.setProgressListener(progress -> {
+                long now = System.currentTimeMillis();
+                if (now - lastReport[0] >= 2000) {
+                    lastReport[0] = now;
+                    System.out.println(progress);
+                }
+            });
+
+            CatalogImporter.Progress result = importer.run();
+            if (result.getResumedAt() > 0) {
+                System.out.println("Resumed after record " + result.getResumedAt());
+            }
+            System.out.println("Done: " + result);
+            for (String reason : result.getRejectedSamples()) {
+                System.out.println("  rejected: " + reason);
+            }
+        } finally {
+            model.Database.shutdown();
+        }
+    }
+}
@@ -3,6 +3,12 @@ import view.LoginForm;
 
 public class Main {
     public static void main(String[] args) {
+        // Flush queued loans and returns, then close pooled connections when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            model.CirculationQueue.shared().shutdown();
+            model.Database.shutdown();
+        }));
+
         // Initialize database (create tables if they don't exist)
         try {
             model.Database.initializeDatabase();
@@ -10,6 +16,37 @@ public class Main {
             e.printStackTrace();
         }
 
+        // Send browsing reads to replicas once they pass a lag check
+        model.Database.startReplicaChecks();
+
+        // Keep book_loans.status current for overdue loans
+        model.OverdueSweeper.start();
+
+        // Move loans returned long ago to book_loans_archive
+        model.LoanArchiver.start();
+
+        // Repair per-member loan counters that drifted
+        model.LoanCounters.start();
+
+        // Pick up other desks' changes and apply them to the open tables
+        model.ChangeFeed.start();
+
+        // Statement timings over JMX, and in a log file if -Dlibrary.metrics.logFile is set
+        model.QueryMetrics.start();
+
+        // Serve availability badges and loan pre-checks from memory
+        model.AvailabilityCache.start();
+
+        // Build the catalog search and member indexes in the background while the user logs in
+        model.DatabaseExecutor.submit(() -> {
+            model.BookSearchIndex.shared().ensureBuilt();
+            model.MemberIndex.shared().ensureBuilt();
+            return null;
+        });
+
+        // Reads from this desk go to the primary for a few seconds after it changes something
+        javax.swing.SwingUtilities.invokeLater(() -> model.ReplicaSet.Session.bind(new model.ReplicaSet.Session()));
+
         // Show login form
         LoginForm loginForm = new LoginForm();
         loginForm.setVisible(true);
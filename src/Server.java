@@ -0,0 +1,39 @@
+// src/Server.java
+import server.LibraryServer;
+
+public class Server {
+    public static void main(String[] args) throws Exception {
+        // Loopback only unless the server is meant to be reached from other machines
+        String host = System.getProperty("library.server.host", "127.0.0.1");
+        int port = Integer.getInteger("library.server.port", 8080);
+
+        // Flush queued loans and returns, then close pooled connections when the server exits
+        LibraryServer[] running = new LibraryServer[1];
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (running[0] != null) {
+                running[0].stop(2);
+            }
+            model.CirculationQueue.shared().shutdown();
+            model.Database.shutdown();
+        }));
+
+        // Initialize database (create tables if they don't exist)
+        model.Database.initializeDatabase();
+
+        // Same background jobs as the desktop application
+        model.Database.startReplicaChecks();
+        model.OverdueSweeper.start();
+        model.LoanArchiver.start();
+        model.LoanCounters.start();
+        model.ChangeFeed.start();
+        model.QueryMetrics.start();
+        model.AvailabilityCache.start();
+
+        // Build the index before accepting requests so the first search is not slow
+        model.BookSearchIndex.shared().ensureBuilt();
+
+        running[0] = new LibraryServer(host, port);
+        running[0].start();
+        System.out.println("Library server listening on " + running[0].getAddress());
+    }
+}
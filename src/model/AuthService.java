@@ -0,0 +1,256 @@
+// src/model/AuthService.java
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Password hashing and sign-in.
+ *
+ * Passwords are stored as "pbkdf2$iterations$salt$hash" (PBKDF2-HMAC-SHA256,
+ * base64 salt and hash). Rows that still hold a plaintext password, or a hash
+ * with fewer iterations than library.auth.iterations, are rehashed the first time
+ * their owner signs in successfully.
+ *
+ * Hashing is deliberately slow, so it runs on a small bounded pool
+ * (library.auth.threads) rather than on whatever thread asked; when that pool is
+ * saturated further sign-ins fail fast instead of queueing without limit.
+ * Failed attempts are counted per username with exponential decay, and a name
+ * with too many recent failures is rejected before MySQL is even queried.
+ */
+public class AuthService {
+    private static final String SCHEME = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int ITERATIONS = Integer.getInteger("library.auth.iterations", 210_000);
+
+    // A username is locked once its decayed failure score exceeds MAX_FAILURES - 1
+    private static final int MAX_FAILURES = Integer.getInteger("library.auth.maxFailures", 5);
+    private static final long FAILURE_HALF_LIFE_MILLIS = 5 * 60_000L;
+    private static final int MAX_TRACKED_NAMES = 10_000;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final AuthService SHARED = new AuthService(
+            Integer.getInteger("library.auth.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+
+    private final ThreadPoolExecutor hashers;
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+    private final UserRepository userRepository = new UserRepository();
+    // Verified against when the username does not exist, so both cases take as long
+    private final String dummyHash = hashPassword("not a real password");
+
+    /**
+     * Thrown when a username has failed too often recently.
+     */
+    public static class LockedOutException extends Exception {
+        private final long retryAfterSeconds;
+
+        LockedOutException(long retryAfterSeconds) {
+            super("Too many failed sign-in attempts. Try again in " + retryAfterSeconds + " seconds.");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    public AuthService(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 8), r -> {
+                    Thread t = new Thread(r, "auth-hasher-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    public static AuthService shared() {
+        return SHARED;
+    }
+
+    /**
+     * Checks a username and password.
+     *
+     * @return the user, or null if the credentials are wrong
+     * @throws LockedOutException if the username is temporarily locked
+     */
+    public User authenticate(String username, String password) throws SQLException, LockedOutException {
+        String key = username.trim().toLowerCase();
+        checkNotLocked(key);
+
+        User user = userRepository.findByUsername(username);
+        String stored = user != null ? user.getPassword() : dummyHash;
+        boolean hashed = isHash(stored);
+        boolean matches = hashed
+                ? onHasher(() -> verify(password, stored))
+                : constantTimeEquals(password, stored);
+
+        if (user == null || !matches) {
+            recordFailure(key);
+            return null;
+        }
+        failures.remove(key);
+
+        if (!hashed || iterationsOf(stored) < ITERATIONS) {
+            String upgraded = onHasher(() -> hashPassword(password));
+            // Only replaces the value we verified, so a concurrent password change wins
+            if (userRepository.updatePassword(user.getId(), stored, upgraded)) {
+                user.setPassword(upgraded);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Hashes a new password on the bounded hasher pool, failing fast when it is saturated.
+     */
+    public String hash(String password) throws SQLException {
+        return onHasher(() -> hashPassword(password));
+    }
+
+    /**
+     * Hashes a new password on the calling thread.
+     */
+    public static String hashPassword(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, ITERATIONS);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + ITERATIONS + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && stored.startsWith(SCHEME + "$");
+    }
+
+    static boolean verify(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            Base64.Decoder b64 = Base64.getDecoder();
+            byte[] salt = b64.decode(parts[2]);
+            byte[] expected = b64.decode(parts[3]);
+            byte[] actual = pbkdf2(password, salt, Integer.parseInt(parts[1]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false; // Corrupt hash; treat like a wrong password
+        }
+    }
+
+    private static int iterationsOf(String stored) {
+        try {
+            return Integer.parseInt(stored.split("\\$")[1]);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static boolean constantTimeEquals(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private <T> T onHasher(Callable<T> work) throws SQLException {
+        Future<T> future;
+        try {
+            future = hashers.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new SQLTransientException("Sign-in service is busy, please try again");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SQLTransientException("Interrupted while verifying password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Password verification failed", cause);
+        }
+    }
+
+    private void checkNotLocked(String key) throws LockedOutException {
+        Failures entry = failures.get(key);
+        if (entry == null) {
+            return;
+        }
+        long retryAfterMillis = entry.lockedForMillis(System.currentTimeMillis());
+        if (retryAfterMillis > 0) {
+            throw new LockedOutException(Math.max(1, (retryAfterMillis + 999) / 1000));
+        }
+    }
+
+    private void recordFailure(String key) {
+        long now = System.currentTimeMillis();
+        failures.computeIfAbsent(key, k -> new Failures()).add(now);
+        if (failures.size() > MAX_TRACKED_NAMES) {
+            // Forget names whose failures have mostly decayed away
+            for (Iterator<Failures> it = failures.values().iterator(); it.hasNext(); ) {
+                if (it.next().score(now) < 0.5) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    // Failure count that halves every FAILURE_HALF_LIFE_MILLIS
+    private static final class Failures {
+        private double score;
+        private long updatedAt;
+
+        synchronized void add(long now) {
+            score = score(now) + 1;
+            updatedAt = now;
+        }
+
+        synchronized double score(long now) {
+            return score * Math.pow(0.5, (double) (now - updatedAt) / FAILURE_HALF_LIFE_MILLIS);
+        }
+
+        // How long until the score decays back to the threshold, or 0 if not locked
+        synchronized long lockedForMillis(long now) {
+            double current = score(now);
+            double threshold = Math.max(0.5, MAX_FAILURES - 1);
+            if (current <= threshold) {
+                return 0;
+            }
+            return (long) (FAILURE_HALF_LIFE_MILLIS * (Math.log(current / threshold) / Math.log(2)));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+// src/model/AvailabilityCache.java
+package model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of books.available_quantity, one atomic counter per book id.
+ *
+ * Seeded once at startup, adjusted write-through by this process's checkouts and
+ * returns after they commit, and periodically reconciled against the database to
+ * pick up changes made by other workstations. The database stays authoritative:
+ * checkouts still verify availability inside their transaction, the cache only
+ * serves badges and pre-checks without a round trip.
+ *
+ * Each counter is a single AtomicLong holding the value (low 24 bits), the
+ * number of this process's transactions that are committing a change to the
+ * book (next 8 bits) and a stamp from a process-wide clock (high 32 bits),
+ * updated together by compare-and-set. Writers commit through commit(), which
+ * marks their books pending before the commit; reconciliation and change-feed
+ * reads leave a pending counter alone, since the row they read may already
+ * include the commit that adjust() is about to apply. Reconciliation also takes
+ * a stamp before reading the table and leaves alone any counter changed after
+ * it, since the snapshot may predate that change; the next reconciliation
+ * catches up with it.
+ */
+public class AvailabilityCache {
+    private static final long RECONCILE_SECONDS = Long.getLong("library.availability.reconcileSeconds", 60L);
+
+    private static final int VALUE_BITS = 24;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final int MAX_PENDING = 0xFF;
+    // Placeholder for a book marked pending before it was ever cached
+    private static final int UNKNOWN = -(1 << (VALUE_BITS - 1));
+
+    private static final AvailabilityCache SHARED = new AvailabilityCache();
+
+    private final ConcurrentHashMap<Integer, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger clock = new AtomicInteger();
+    private final BookRepository bookRepository = new BookRepository();
+
+    public static AvailabilityCache shared() {
+        return SHARED;
+    }
+
+    private static long pack(int stamp, int pending, int value) {
+        return ((long) stamp << 32) | ((long) pending << VALUE_BITS) | (value & VALUE_MASK);
+    }
+
+    private static int valueOf(long counter) {
+        return (int) (counter << (64 - VALUE_BITS) >> (64 - VALUE_BITS));
+    }
+
+    private static int pendingOf(long counter) {
+        return (int) (counter >>> VALUE_BITS) & MAX_PENDING;
+    }
+
+    private static int stampOf(long counter) {
+        return (int) (counter >>> 32);
+    }
+
+    // Stamps wrap around, so they are compared by difference
+    private static boolean changedAfter(long counter, int snapshot) {
+        return stampOf(counter) - snapshot > 0;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(UNKNOWN + 1, Math.min((int) (VALUE_MASK >> 1), value));
+    }
+
+    /**
+     * Seeds the cache in the background and schedules reconciliation.
+     */
+    public static void start() {
+        BackgroundJobs.scheduleAtFixedRate("availability_reconcile", () -> {
+            try {
+                SHARED.reconcile();
+            } catch (SQLException e) {
+                System.err.println("Availability reconcile failed: " + e.getMessage());
+            }
+        }, 0, RECONCILE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Copies of the book that can be lent right now, or -1 if the book is not cached.
+     */
+    public int get(int bookId) {
+        AtomicLong counter = counters.get(bookId);
+        int value = counter == null ? UNKNOWN : valueOf(counter.get());
+        return value == UNKNOWN ? -1 : value;
+    }
+
+    // Unknown books are reported available and left to the checkout transaction to decide
+    public boolean isAvailable(int bookId) {
+        AtomicLong counter = counters.get(bookId);
+        int value = counter == null ? UNKNOWN : valueOf(counter.get());
+        return value == UNKNOWN || value > 0;
+    }
+
+    /**
+     * Stores a value just read from the database, unless one of this process's
+     * transactions is committing a change to the book.
+     */
+    public void set(int bookId, int available) {
+        int stamp = clock.incrementAndGet();
+        int value = clamp(available);
+        AtomicLong counter = counters.get(bookId);
+        if (counter == null) {
+            counter = counters.putIfAbsent(bookId, new AtomicLong(pack(stamp, 0, value)));
+            if (counter == null) {
+                return;
+            }
+        }
+        counter.updateAndGet(c -> pendingOf(c) > 0 ? c : pack(stamp, 0, value));
+    }
+
+    /**
+     * Commits the caller's transaction, which changes the availability of the
+     * given books. Until the caller applies the change with adjust(), reconcile()
+     * and set() leave those books alone. If the commit fails, the books are
+     * released again and the exception is rethrown.
+     */
+    public void commit(Connection conn, Collection<Integer> bookIds) throws SQLException {
+        for (int bookId : bookIds) {
+            begin(bookId);
+        }
+        try {
+            conn.commit();
+        } catch (SQLException e) {
+            for (int bookId : bookIds) {
+                end(bookId, 0);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Applies a change committed through commit(): negative for checkouts,
+     * positive for returns. Called once per book passed to commit().
+     */
+    public void adjust(int bookId, int delta) {
+        end(bookId, delta);
+    }
+
+    private void begin(int bookId) {
+        int stamp = clock.incrementAndGet();
+        counters.computeIfAbsent(bookId, k -> new AtomicLong(pack(stamp, 0, UNKNOWN)))
+                .updateAndGet(c -> pack(stamp, Math.min(MAX_PENDING, pendingOf(c) + 1), valueOf(c)));
+    }
+
+    private void end(int bookId, int delta) {
+        AtomicLong counter = counters.get(bookId);
+        if (counter == null) {
+            return; // Removed while committing
+        }
+        int stamp = clock.incrementAndGet();
+        counter.updateAndGet(c -> {
+            int value = valueOf(c);
+            return pack(stamp, Math.max(0, pendingOf(c) - 1), value == UNKNOWN ? UNKNOWN : clamp(value + delta));
+        });
+    }
+
+    public void remove(int bookId) {
+        counters.remove(bookId);
+    }
+
+    /**
+     * Overwrites every counter with the value currently in the database, except
+     * counters that are pending or were changed while the table was being read.
+     */
+    public void reconcile() throws SQLException {
+        int snapshot = clock.get();
+        Map<Integer, Integer> current = bookRepository.findAllAvailability();
+        for (Map.Entry<Integer, Integer> entry : current.entrySet()) {
+            int value = clamp(entry.getValue());
+            AtomicLong counter = counters.get(entry.getKey());
+            if (counter == null) {
+                counter = counters.putIfAbsent(entry.getKey(), new AtomicLong(pack(snapshot, 0, value)));
+            }
+            if (counter != null) {
+                counter.updateAndGet(c -> pendingOf(c) > 0 || changedAfter(c, snapshot)
+                        ? c : pack(stampOf(c), 0, value));
+            }
+        }
+        // Books deleted elsewhere; a book added since the snapshot is not in it yet
+        counters.entrySet().removeIf(entry -> {
+            long c = entry.getValue().get();
+            return !current.containsKey(entry.getKey()) && pendingOf(c) == 0 && !changedAfter(c, snapshot);
+        });
+    }
+}
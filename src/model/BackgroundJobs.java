@@ -0,0 +1,55 @@
+// src/model/BackgroundJobs.java
+package model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler for periodic maintenance jobs (overdue sweeps and the like).
+ * Jobs run one at a time on a single daemon thread; a failing run is logged
+ * and does not cancel later runs.
+ */
+public final class BackgroundJobs {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "background-jobs");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private BackgroundJobs() {}
+
+    public static ScheduledFuture<?> scheduleAtFixedRate(String name, Runnable job, long initialDelay,
+                                                        long period, TimeUnit unit) {
+        return SCHEDULER.scheduleAtFixedRate(guard(name, job), initialDelay, period, unit);
+    }
+
+    /**
+     * Runs the job once right away and then every day shortly after midnight.
+     */
+    public static ScheduledFuture<?> scheduleDaily(String name, Runnable job) {
+        SCHEDULER.execute(guard(name, job));
+        LocalDateTime nextRun = LocalDate.now().plusDays(1).atTime(0, 5);
+        long delay = Duration.between(LocalDateTime.now(), nextRun).toMillis();
+        return SCHEDULER.scheduleAtFixedRate(guard(name, job), delay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public static void execute(String name, Runnable job) {
+        SCHEDULER.execute(guard(name, job));
+    }
+
+    private static Runnable guard(String name, Runnable job) {
+        return () -> {
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                System.err.println("Background job '" + name + "' failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        };
+    }
+}
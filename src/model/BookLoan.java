@@ -11,6 +11,9 @@ public class BookLoan {
     private Date dueDate;
     private Date returnDate;
     private String status;
+    // Display fields filled in by queries that join books and users
+    private String bookTitle;
+    private String borrowerUsername;
 
     // Constructors
     public BookLoan() {}
@@ -80,6 +83,22 @@ public class BookLoan {
         this.status = status;
     }
 
+    public String getBookTitle() {
+        return bookTitle;
+    }
+
+    public void setBookTitle(String bookTitle) {
+        this.bookTitle = bookTitle;
+    }
+
+    public String getBorrowerUsername() {
+        return borrowerUsername;
+    }
+
+    public void setBorrowerUsername(String borrowerUsername) {
+        this.borrowerUsername = borrowerUsername;
+    }
+
     @Override
     public String toString() {
         return "BookLoan{" +
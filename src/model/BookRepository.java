@@ -0,0 +1,289 @@
+// src/model/BookRepository.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * All SQL against the books table.
+ *
+ * Statements are prepared through pooled connections with Connector/J's
+ * server-side prepared statement cache enabled (see Database.URL), so each
+ * distinct statement is parsed once per connection and reused afterwards.
+ * Catalog browsing may be served by a read replica (Database.getReadConnection);
+ * the search index and availability loads, and the rows the change feed
+ * patches them with (findByIdsOnPrimary), stay on the primary. Rows about to
+ * be edited and written back are loaded with findByIdOnPrimary, so a lagging
+ * replica cannot undo newer changes.
+ */
+public class BookRepository {
+    private static final String COLUMNS =
+            "SELECT id, title, author, isbn, genre, publication_year, quantity, available_quantity, created_at ";
+
+    private static final String COUNT = "SELECT COUNT(*) FROM books";
+    private static final String FIRST_PAGE = COLUMNS + "FROM books ORDER BY title, id LIMIT ?";
+    // "title >= ?" gives MySQL an index range, the OR breaks ties on id
+    private static final String NEXT_PAGE = COLUMNS +
+            "FROM books WHERE title >= ? AND (title > ? OR id > ?) ORDER BY title, id LIMIT ?";
+    // Reads only (title, id), which idx_books_title covers
+    private static final String KEY_AT = "SELECT title, id FROM books ORDER BY title, id LIMIT 1 OFFSET ?";
+    private static final String FIND_BY_ID = COLUMNS + "FROM books WHERE id = ?";
+    private static final String AVAILABILITY = "SELECT id, available_quantity FROM books";
+    private static final String SEARCHABLE = "SELECT id, title, author, isbn FROM books ORDER BY id";
+    private static final String INSERT = "INSERT INTO books (title, author, isbn, genre, publication_year, " +
+            "quantity, available_quantity) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE books SET title = ?, author = ?, isbn = ?, genre = ?, " +
+            "publication_year = ?, quantity = ? WHERE id = ?";
+    private static final String DELETE = "DELETE FROM books WHERE id = ?";
+
+    public int count() throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(COUNT);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Books ordered by (title, id) that come after the given key, or from the start when afterTitle is null.
+     */
+    public List<Book> findPage(String afterTitle, int afterId, int limit) throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(afterTitle == null ? FIRST_PAGE : NEXT_PAGE)) {
+            int i = 1;
+            if (afterTitle != null) {
+                stmt.setString(i++, afterTitle);
+                stmt.setString(i++, afterTitle);
+                stmt.setInt(i++, afterId);
+            }
+            stmt.setInt(i, limit);
+
+            List<Book> books = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    books.add(map(rs));
+                }
+            }
+            return books;
+        }
+    }
+
+    /**
+     * The book at the given position in (title, id) order, with only title and id filled in.
+     */
+    public Book findKeyAt(int offset) throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(KEY_AT)) {
+            stmt.setInt(1, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Book key = new Book();
+                key.setId(rs.getInt("id"));
+                key.setTitle(rs.getString("title"));
+                return key;
+            }
+        }
+    }
+
+    public Book findById(int id) throws SQLException {
+        return findById(id, false);
+    }
+
+    /**
+     * Like findById, but always reads the primary; for a book that is about to be edited.
+     */
+    public Book findByIdOnPrimary(int id) throws SQLException {
+        return findById(id, true);
+    }
+
+    private Book findById(int id, boolean primary) throws SQLException {
+        try (Connection conn = primary ? Database.getConnection() : Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Loads the given books by primary key, keeping the order of ids and skipping ones that no longer exist.
+     */
+    public List<Book> findByIds(List<Integer> ids) throws SQLException {
+        return findByIds(ids, false);
+    }
+
+    /**
+     * Like findByIds, but always reads the primary; for rows that go into the shared caches.
+     */
+    public List<Book> findByIdsOnPrimary(List<Integer> ids) throws SQLException {
+        return findByIds(ids, true);
+    }
+
+    private List<Book> findByIds(List<Integer> ids, boolean primary) throws SQLException {
+        List<Book> books = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return books;
+        }
+        StringBuilder sql = new StringBuilder(COLUMNS).append("FROM books WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        Map<Integer, Book> byId = new HashMap<>();
+        try (Connection conn = primary ? Database.getConnection() : Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Book book = map(rs);
+                    byId.put(book.getId(), book);
+                }
+            }
+        }
+        for (Integer id : ids) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Streams id, title, author and ISBN of every book in id order.
+     */
+    public void forEachSearchable(Consumer<Book> consumer) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SEARCHABLE);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Book book = new Book();
+                book.setId(rs.getInt("id"));
+                book.setTitle(rs.getString("title"));
+                book.setAuthor(rs.getString("author"));
+                book.setIsbn(rs.getString("isbn"));
+                consumer.accept(book);
+            }
+        }
+    }
+
+    /**
+     * Available copies of every book, keyed by book id.
+     */
+    public Map<Integer, Integer> findAllAvailability() throws SQLException {
+        Map<Integer, Integer> availability = new HashMap<>();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(AVAILABILITY);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                availability.put(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        return availability;
+    }
+
+    /**
+     * Inserts the book with all copies available and sets its generated id.
+     */
+    public int insert(Book book) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, book.getTitle());
+                stmt.setString(2, book.getAuthor());
+                stmt.setString(3, book.getIsbn());
+                stmt.setString(4, book.getGenre());
+                stmt.setInt(5, book.getPublicationYear());
+                stmt.setInt(6, book.getQuantity());
+                stmt.setInt(7, book.getQuantity()); // Available equals total quantity initially
+                stmt.executeUpdate();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        book.setId(keys.getInt(1));
+                    }
+                }
+                ChangeLog.record(conn, ChangeLog.BOOKS, book.getId(), ChangeLog.Op.INSERT);
+                conn.commit();
+                return book.getId();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    public boolean update(Book book) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE)) {
+                stmt.setString(1, book.getTitle());
+                stmt.setString(2, book.getAuthor());
+                stmt.setString(3, book.getIsbn());
+                stmt.setString(4, book.getGenre());
+                stmt.setInt(5, book.getPublicationYear());
+                stmt.setInt(6, book.getQuantity());
+                stmt.setInt(7, book.getId());
+                boolean updated = stmt.executeUpdate() > 0;
+                if (updated) {
+                    ChangeLog.record(conn, ChangeLog.BOOKS, book.getId(), ChangeLog.Op.UPDATE);
+                }
+                conn.commit();
+                return updated;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    public boolean delete(int id) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(DELETE)) {
+                stmt.setInt(1, id);
+                boolean deleted = stmt.executeUpdate() > 0;
+                if (deleted) {
+                    ChangeLog.record(conn, ChangeLog.BOOKS, id, ChangeLog.Op.DELETE);
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    static Book map(ResultSet rs) throws SQLException {
+        Book book = new Book();
+        book.setId(rs.getInt("id"));
+        book.setTitle(rs.getString("title"));
+        book.setAuthor(rs.getString("author"));
+        book.setIsbn(rs.getString("isbn"));
+        book.setGenre(rs.getString("genre"));
+        book.setPublicationYear(rs.getInt("publication_year"));
+        book.setQuantity(rs.getInt("quantity"));
+        book.setAvailableQuantity(rs.getInt("available_quantity"));
+        java.sql.Timestamp createdAt = rs.getTimestamp("created_at");
+        book.setCreatedAt(createdAt != null ? createdAt.toString() : null);
+        return book;
+    }
+}
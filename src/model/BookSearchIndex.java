@@ -0,0 +1,447 @@
+// src/model/BookSearchIndex.java
+package model;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book title, author and ISBN.
+ *
+ * Every normalized title and author token is indexed under all of its prefixes
+ * (up to MAX_PREFIX characters) and under its trigrams, so a query term matches
+ * whole words, word prefixes and substrings without scanning the books table.
+ * ISBNs are indexed under their trigrams and their first NGRAM - 1 characters
+ * only: almost every longer ISBN prefix belongs to a single book, so giving each
+ * its own posting list would cost several objects per book. Longer ISBN
+ * prefixes are found through the trigrams like any other substring.
+ * Postings are sorted int arrays of book ids. Multi-term queries are ANDed and
+ * ranked by where each term matched (title before author before ISBN, exact
+ * word before prefix before substring).
+ *
+ * The index is built once from the database and then kept current through
+ * put() and remove() as books are saved, updated and deleted. Changes that
+ * arrive while a build is running are queued and applied when it finishes.
+ */
+public class BookSearchIndex {
+    private static final int MAX_PREFIX = 12;
+    private static final int NGRAM = 3;
+    private static final int MAX_RESULTS = 500;
+
+    private static final BookSearchIndex SHARED = new BookSearchIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, IntPostings> postings = new HashMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private volatile boolean built;
+    // Changes made during a build, latest per book, null for a removal; guarded by this
+    private Map<Integer, Doc> pending;
+
+    public static BookSearchIndex shared() {
+        return SHARED;
+    }
+
+    // Normalized searchable text of one book; its posting keys are derived when needed, not stored
+    private static final class Doc {
+        final String[] titleTokens;
+        final String[] authorTokens;
+        final String isbn;
+
+        Doc(String title, String author, String isbn) {
+            this.titleTokens = tokenize(title);
+            this.authorTokens = tokenize(author);
+            this.isbn = normalizeIsbn(isbn);
+        }
+
+        Set<String> keys() {
+            Set<String> keys = new HashSet<>();
+            for (String token : titleTokens) {
+                addKeys(token, keys);
+            }
+            for (String token : authorTokens) {
+                addKeys(token, keys);
+            }
+            if (!isbn.isEmpty()) {
+                addIsbnKeys(isbn, keys);
+            }
+            return keys;
+        }
+
+        boolean sameAs(Doc other) {
+            return other != null && isbn.equals(other.isbn)
+                    && Arrays.equals(titleTokens, other.titleTokens)
+                    && Arrays.equals(authorTokens, other.authorTokens);
+        }
+    }
+
+    /**
+     * Loads every book into the index unless that already happened.
+     */
+    public void ensureBuilt() throws SQLException {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            synchronized (this) {
+                pending = new HashMap<>();
+            }
+            postings.clear();
+            docs.clear();
+            boolean complete = false;
+            try {
+                // Ids arrive in ascending order, so postings are appended to, not inserted into
+                new BookRepository().forEachSearchable(book ->
+                        index(book.getId(), new Doc(book.getTitle(), book.getAuthor(), book.getIsbn())));
+                complete = true;
+            } finally {
+                synchronized (this) {
+                    if (complete) {
+                        for (Map.Entry<Integer, Doc> change : pending.entrySet()) {
+                            unindex(change.getKey());
+                            if (change.getValue() != null) {
+                                index(change.getKey(), change.getValue());
+                            }
+                        }
+                        built = true;
+                    }
+                    pending = null;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the next search to rebuild the index from the database.
+     */
+    public void invalidate() {
+        built = false;
+    }
+
+    /**
+     * Indexes a new or edited book. Does nothing if its title, author and ISBN
+     * index the same as before, e.g. when only its availability changed.
+     */
+    public void put(Book book) {
+        Doc doc = new Doc(book.getTitle(), book.getAuthor(), book.getIsbn());
+        if (deferred(book.getId(), doc)) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (doc.sameAs(docs.get(book.getId()))) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(book.getId());
+            index(book.getId(), doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        if (deferred(bookId, null)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // True if the index is not built yet; a running build gets the change queued
+    private synchronized boolean deferred(int bookId, Doc doc) {
+        if (built) {
+            return false;
+        }
+        if (pending != null) {
+            pending.put(bookId, doc);
+        }
+        return true; // Otherwise the next build reads it from the database
+    }
+
+    /**
+     * Returns the ids of books matching every term of the query, best match first.
+     */
+    public List<Integer> search(String query) throws SQLException {
+        ensureBuilt();
+        // An ISBN typed with hyphens or spaces is one term, not several numbers
+        String[] terms = query.matches("[0-9Xx\\-\\s]*[0-9][0-9Xx\\-\\s]*")
+                ? new String[]{normalizeIsbn(query)}
+                : tokenize(query);
+        if (terms.length == 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Posting lists are read in place under the read lock; only intersections allocate
+            IntPostings matches = null;
+            for (String term : terms) {
+                IntPostings termMatches = candidates(term);
+                matches = matches == null ? termMatches : intersect(matches, termMatches);
+                if (matches.size == 0) {
+                    return new ArrayList<>();
+                }
+            }
+
+            int[] scores = new int[matches.size];
+            for (int i = 0; i < matches.size; i++) {
+                Doc doc = docs.get(matches.ids[i]);
+                for (String term : terms) {
+                    scores[i] += score(doc, term);
+                }
+            }
+
+            Integer[] order = new Integer[matches.size];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            final int[] ids = matches.ids;
+            Arrays.sort(order, (a, b) -> scores[a] != scores[b]
+                    ? Integer.compare(scores[b], scores[a])
+                    : Integer.compare(ids[a], ids[b]));
+
+            List<Integer> result = new ArrayList<>(Math.min(order.length, MAX_RESULTS));
+            for (int i = 0; i < order.length && i < MAX_RESULTS; i++) {
+                result.add(ids[order[i]]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Books whose title, author or ISBN contains the term as a word prefix or a substring
+    private IntPostings candidates(String term) {
+        IntPostings prefixMatches = postingsOf("p:" + (term.length() > MAX_PREFIX ? term.substring(0, MAX_PREFIX) : term));
+        if (term.length() > MAX_PREFIX) {
+            prefixMatches = verify(prefixMatches, term);
+        }
+        if (term.length() < NGRAM) {
+            return prefixMatches;
+        }
+
+        IntPostings substringMatches = null;
+        for (int i = 0; i + NGRAM <= term.length(); i++) {
+            IntPostings gram = postingsOf("g:" + term.substring(i, i + NGRAM));
+            substringMatches = substringMatches == null ? gram : intersect(substringMatches, gram);
+            if (substringMatches.size == 0) {
+                return prefixMatches;
+            }
+        }
+        // Trigram hits are only candidates; the grams may come from different words
+        return union(prefixMatches, verify(substringMatches, term));
+    }
+
+    private IntPostings verify(IntPostings candidates, String term) {
+        int[] kept = new int[candidates.size];
+        int n = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            int id = candidates.ids[i];
+            if (score(docs.get(id), term) > 0) {
+                kept[n++] = id;
+            }
+        }
+        return new IntPostings(kept, n);
+    }
+
+    private static int score(Doc doc, String term) {
+        int best = 0;
+        for (String token : doc.titleTokens) {
+            best = Math.max(best, matchScore(token, term, 10, 6, 3));
+        }
+        for (String token : doc.authorTokens) {
+            best = Math.max(best, matchScore(token, term, 7, 4, 2));
+        }
+        best = Math.max(best, matchScore(doc.isbn, term, 8, 5, 2));
+        return best;
+    }
+
+    private static int matchScore(String token, String term, int exact, int prefix, int substring) {
+        if (token.equals(term)) {
+            return exact;
+        }
+        if (token.startsWith(term)) {
+            return prefix;
+        }
+        return token.contains(term) ? substring : 0;
+    }
+
+    // The index's own list, which callers must only read
+    private IntPostings postingsOf(String key) {
+        IntPostings list = postings.get(key);
+        return list == null ? IntPostings.EMPTY : list;
+    }
+
+    private void index(int id, Doc doc) {
+        docs.put(id, doc);
+        for (String key : doc.keys()) {
+            postings.computeIfAbsent(key, k -> new IntPostings()).add(id);
+        }
+    }
+
+    private void unindex(int id) {
+        Doc old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String key : old.keys()) {
+            IntPostings list = postings.get(key);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static void addIsbnKeys(String isbn, Set<String> keys) {
+        for (int len = 1; len < NGRAM && len <= isbn.length(); len++) {
+            keys.add("p:" + isbn.substring(0, len));
+        }
+        for (int i = 0; i + NGRAM <= isbn.length(); i++) {
+            keys.add("g:" + isbn.substring(i, i + NGRAM));
+        }
+    }
+
+    private static void addKeys(String token, Set<String> keys) {
+        for (int len = 1; len <= Math.min(token.length(), MAX_PREFIX); len++) {
+            keys.add("p:" + token.substring(0, len));
+        }
+        for (int i = 0; i + NGRAM <= token.length(); i++) {
+            keys.add("g:" + token.substring(i, i + NGRAM));
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String normalizeIsbn(String isbn) {
+        return isbn == null ? "" : isbn.replaceAll("[^0-9Xx]", "").toLowerCase();
+    }
+
+    private static IntPostings intersect(IntPostings a, IntPostings b) {
+        int[] out = new int[Math.min(a.size, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size && j < b.size) {
+            if (a.ids[i] < b.ids[j]) {
+                i++;
+            } else if (a.ids[i] > b.ids[j]) {
+                j++;
+            } else {
+                out[n++] = a.ids[i];
+                i++;
+                j++;
+            }
+        }
+        return new IntPostings(out, n);
+    }
+
+    private static IntPostings union(IntPostings a, IntPostings b) {
+        if (b.size == 0) {
+            return a;
+        }
+        if (a.size == 0) {
+            return b;
+        }
+        int[] out = new int[a.size + b.size];
+        int i = 0, j = 0, n = 0;
+        while (i < a.size || j < b.size) {
+            if (j >= b.size || (i < a.size && a.ids[i] < b.ids[j])) {
+                out[n++] = a.ids[i++];
+            } else if (i >= a.size || b.ids[j] < a.ids[i]) {
+                out[n++] = b.ids[j++];
+            } else {
+                out[n++] = a.ids[i];
+                i++;
+                j++;
+            }
+        }
+        return new IntPostings(out, n);
+    }
+
+    // Sorted, growable array of book ids
+    private static final class IntPostings {
+        static final IntPostings EMPTY = new IntPostings(new int[0], 0);
+
+        int[] ids;
+        int size;
+
+        IntPostings() {
+            this(new int[4], 0);
+        }
+
+        IntPostings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] < id) {
+                append(id);
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        private void append(int id) {
+            ensureCapacity();
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,537 @@
+// src/model/CatalogImporter.java
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a catalog file into the books table.
+ *
+ * The calling thread reads raw records and hands them out in chunks to
+ * a pool of parser threads, which parse and validate them. Parsed chunks are
+ * written back in file order, each as multi-row INSERT IGNORE statements in one
+ * transaction, so the checkpoint file only ever names a fully committed prefix of
+ * the input. A rerun with the same checkpoint skips that prefix; anything written
+ * twice is dropped by the unique ISBN.
+ *
+ * Two formats are understood:
+ *   CSV     header row naming the columns title, author, isbn, genre,
+ *           publication_year and quantity (any order, extra columns ignored)
+ *   TAGGED  MARC-like records of "TAG value" lines separated by blank lines:
+ *           020 ISBN, 100 author, 245 title, 260 year, 650 genre, 876 copies
+ *
+ * ISBN-10s are converted to ISBN-13 so both spellings of a title collapse into one row.
+ */
+public class CatalogImporter {
+    public enum Format { CSV, TAGGED }
+
+    private static final int CHUNK_RECORDS = 5000;
+    private static final int ROWS_PER_INSERT = 500;
+    private static final String INSERT_PREFIX = "INSERT IGNORE INTO books " +
+            "(title, author, isbn, genre, publication_year, quantity, available_quantity) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final Pattern YEAR = Pattern.compile("\\d{4}");
+    private static final Pattern NUMBER = Pattern.compile("\\d{1,6}");
+
+    private final Path input;
+    private final Format format;
+    private final Path checkpoint;
+    private final int parserThreads;
+    private Consumer<Progress> progressListener = progress -> {};
+
+    public CatalogImporter(Path input, Format format, int parserThreads) {
+        this.input = input;
+        this.format = format;
+        this.checkpoint = input.resolveSibling(input.getFileName() + ".checkpoint");
+        this.parserThreads = Math.max(1, parserThreads);
+    }
+
+    public static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".csv") ? Format.CSV : Format.TAGGED;
+    }
+
+    /**
+     * Called on the importing thread after every committed chunk.
+     */
+    public void setProgressListener(Consumer<Progress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public Progress run() throws IOException, SQLException {
+        long resumeAfter = readCheckpoint();
+        Progress progress = new Progress(resumeAfter);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, r -> {
+            Thread t = new Thread(r, "catalog-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        // Bounded so the reader can never run far ahead of the database
+        int maxInFlight = parserThreads * 2;
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>(maxInFlight);
+        Set<String> seenIsbns = new HashSet<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            RecordReader records = format == Format.CSV ? new CsvRecordReader(reader) : new TaggedRecordReader(reader);
+            for (long skipped = 0; skipped < resumeAfter && records.next() != null; skipped++) {
+                // Already committed by an earlier run
+            }
+
+            List<Object> raw;
+            while (!(raw = readChunk(records)).isEmpty()) {
+                if (inFlight.size() == maxInFlight) {
+                    write(await(inFlight.poll()), seenIsbns, progress);
+                }
+                List<Object> chunk = raw;
+                inFlight.add(parsers.submit(() -> parse(chunk, records)));
+            }
+            // Chunks are written in the order they were read, whichever parser finished first
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), seenIsbns, progress);
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+
+        Files.deleteIfExists(checkpoint);
+        BookSearchIndex.shared().invalidate();
+        return progress;
+    }
+
+    private static List<Object> readChunk(RecordReader records) throws IOException {
+        List<Object> raw = new ArrayList<>(CHUNK_RECORDS);
+        Object record;
+        while (raw.size() < CHUNK_RECORDS && (record = records.next()) != null) {
+            raw.add(record);
+        }
+        return raw;
+    }
+
+    private static ParsedChunk parse(List<Object> raw, RecordReader records) {
+        ParsedChunk chunk = new ParsedChunk(raw.size());
+        for (Object record : raw) {
+            try {
+                chunk.books.add(records.toBook(record));
+            } catch (IllegalArgumentException e) {
+                chunk.rejected.add(e.getMessage());
+            }
+        }
+        return chunk;
+    }
+
+    private void write(ParsedChunk chunk, Set<String> seenIsbns, Progress progress)
+            throws SQLException, IOException {
+        List<Book> rows = new ArrayList<>(chunk.books.size());
+        for (Book book : chunk.books) {
+            if (seenIsbns.add(book.getIsbn())) {
+                rows.add(book);
+            } else {
+                progress.duplicates++;
+            }
+        }
+
+        int inserted = 0;
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+                    inserted += insert(conn, rows.subList(from, Math.min(rows.size(), from + ROWS_PER_INSERT)));
+                }
+                if (inserted > 0) {
+                    // One marker per chunk instead of a record per row; desks reload the catalog
+                    ChangeLog.record(conn, ChangeLog.BOOKS, 0, ChangeLog.Op.RELOAD);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        progress.records += chunk.recordCount;
+        progress.inserted += inserted;
+        progress.alreadyPresent += rows.size() - inserted;
+        progress.invalid += chunk.rejected.size();
+        for (String reason : chunk.rejected) {
+            if (progress.rejectedSamples.size() < 20) {
+                progress.rejectedSamples.add(reason);
+            }
+        }
+        writeCheckpoint(progress.records);
+        progressListener.accept(progress);
+    }
+
+    private static int insert(Connection conn, List<Book> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDERS);
+        }
+        // Full-size statements share one text, so the driver's statement cache reuses them
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (Book book : rows) {
+                stmt.setString(i++, book.getTitle());
+                stmt.setString(i++, book.getAuthor());
+                stmt.setString(i++, book.getIsbn());
+                stmt.setString(i++, book.getGenre());
+                stmt.setInt(i++, book.getPublicationYear());
+                stmt.setInt(i++, book.getQuantity());
+                stmt.setInt(i++, book.getQuantity());
+            }
+            return stmt.executeUpdate();
+        }
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Parser failed", e.getCause());
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unreadable checkpoint " + checkpoint + "; delete it to start over");
+        }
+    }
+
+    // Write-then-rename so a crash never leaves a half-written checkpoint
+    private void writeCheckpoint(long records) throws IOException {
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.write(tmp, Long.toString(records).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the ISBN as 13 digits, or throws if it is malformed or its check digit is wrong.
+     */
+    public static String normalizeIsbn(String raw) {
+        String isbn = raw == null ? "" : raw.replaceAll("[\\s-]", "").toUpperCase();
+        if (isbn.matches("\\d{9}[\\dX]")) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = isbn.charAt(i);
+                sum += (10 - i) * (c == 'X' ? 10 : c - '0');
+            }
+            if (sum % 11 != 0) {
+                throw new IllegalArgumentException("Bad ISBN-10 check digit: " + raw);
+            }
+            String body = "978" + isbn.substring(0, 9);
+            return body + isbn13CheckDigit(body);
+        }
+        if (isbn.matches("\\d{13}")) {
+            if (isbn13CheckDigit(isbn.substring(0, 12)) != isbn.charAt(12) - '0') {
+                throw new IllegalArgumentException("Bad ISBN-13 check digit: " + raw);
+            }
+            return isbn;
+        }
+        throw new IllegalArgumentException("Not an ISBN: " + raw);
+    }
+
+    private static int isbn13CheckDigit(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    static Book newBook(String title, String author, String isbn, String genre, String year, String copies) {
+        if (title == null || title.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing title for ISBN " + isbn);
+        }
+        return new Book(
+                truncate(title.trim(), 255),
+                truncate(author == null || author.trim().isEmpty() ? "Unknown" : author.trim(), 100),
+                normalizeIsbn(isbn),
+                truncate(genre == null || genre.trim().isEmpty() ? "General" : genre.trim(), 50),
+                firstMatch(YEAR, year, 0),
+                Math.max(1, firstMatch(NUMBER, copies, 1)));
+    }
+
+    private static String truncate(String value, int max) {
+        return value.length() <= max ? value : value.substring(0, max);
+    }
+
+    // "New York : Scribner, c1998." and "1998-2001" both give 1998
+    private static int firstMatch(Pattern pattern, String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        Matcher m = pattern.matcher(value);
+        return m.find() ? Integer.parseInt(m.group()) : defaultValue;
+    }
+
+    /**
+     * Counts for one import run. Records includes those skipped through the checkpoint.
+     */
+    public static class Progress {
+        private long records;
+        private long inserted;
+        private long alreadyPresent;
+        private long duplicates;
+        private long invalid;
+        private final long startedAt = System.currentTimeMillis();
+        private final long resumedAt;
+        private final List<String> rejectedSamples = new ArrayList<>();
+
+        Progress(long resumedAt) {
+            this.resumedAt = resumedAt;
+            this.records = resumedAt;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        // Valid rows whose ISBN was already in the catalog
+        public long getAlreadyPresent() {
+            return alreadyPresent;
+        }
+
+        // Repeats of an ISBN earlier in the same file
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public long getResumedAt() {
+            return resumedAt;
+        }
+
+        public List<String> getRejectedSamples() {
+            return rejectedSamples;
+        }
+
+        public double getRecordsPerSecond() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+            return (records - resumedAt) * 1000.0 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d records (%,d inserted, %,d already present, %,d duplicate, %,d invalid) %.0f/s",
+                    records, inserted, alreadyPresent, duplicates, invalid, getRecordsPerSecond());
+        }
+    }
+
+    private static final class ParsedChunk {
+        final int recordCount;
+        final List<Book> books = new ArrayList<>();
+        final List<String> rejected = new ArrayList<>();
+
+        ParsedChunk(int recordCount) {
+            this.recordCount = recordCount;
+        }
+    }
+
+    // Splits the input into raw records on the reading thread; toBook() runs on the parser threads
+    private interface RecordReader {
+        Object next() throws IOException;
+
+        Book toBook(Object record);
+    }
+
+    private static final class CsvRecordReader implements RecordReader {
+        private static final String[] COLUMNS = {"title", "author", "isbn", "genre", "publication_year", "quantity"};
+
+        private final BufferedReader reader;
+        private final int[] columnIndex = new int[COLUMNS.length];
+
+        CsvRecordReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String header = readRecord();
+            if (header == null) {
+                throw new IOException("Empty CSV file");
+            }
+            List<String> names = split(header);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                columnIndex[c] = -1;
+                for (int i = 0; i < names.size(); i++) {
+                    if (names.get(i).trim().equalsIgnoreCase(COLUMNS[c])) {
+                        columnIndex[c] = i;
+                    }
+                }
+            }
+            if (columnIndex[0] < 0 || columnIndex[2] < 0) {
+                throw new IOException("CSV header must name at least the title and isbn columns");
+            }
+        }
+
+        @Override
+        public Object next() throws IOException {
+            String record;
+            do {
+                record = readRecord();
+            } while (record != null && record.trim().isEmpty());
+            return record;
+        }
+
+        // One logical record; a quoted field may span several lines
+        private String readRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            StringBuilder record = new StringBuilder(line);
+            while (countQuotes(record) % 2 != 0 && (line = reader.readLine()) != null) {
+                record.append('\n').append(line);
+            }
+            return record.toString();
+        }
+
+        private static int countQuotes(CharSequence s) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) == '"') {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public Book toBook(Object record) {
+            List<String> fields = split((String) record);
+            return newBook(field(fields, 0), field(fields, 1), field(fields, 2),
+                    field(fields, 3), field(fields, 4), field(fields, 5));
+        }
+
+        private String field(List<String> fields, int column) {
+            int i = columnIndex[column];
+            return i >= 0 && i < fields.size() ? fields.get(i) : null;
+        }
+
+        static List<String> split(String record) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < record.length(); i++) {
+                char c = record.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class TaggedRecordReader implements RecordReader {
+        private final BufferedReader reader;
+
+        TaggedRecordReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Object next() throws IOException {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    if (!lines.isEmpty()) {
+                        return lines;
+                    }
+                } else {
+                    lines.add(line);
+                }
+            }
+            return lines.isEmpty() ? null : lines;
+        }
+
+        @Override
+        public Book toBook(Object record) {
+            String title = null, author = null, isbn = null, genre = null, year = null, copies = null;
+            @SuppressWarnings("unchecked")
+            List<String> lines = (List<String>) record;
+            for (String line : lines) {
+                if (line.length() < 4) {
+                    continue;
+                }
+                String value = stripSubfields(line.substring(3).trim());
+                switch (line.substring(0, 3)) {
+                    case "020":
+                        isbn = isbn == null ? value.split("\\s")[0] : isbn; // The first ISBN wins
+                        break;
+                    case "100":
+                        author = value;
+                        break;
+                    case "245":
+                        // Subfield $c is the statement of responsibility, not part of the title
+                        title = stripSubfields(line.substring(3).split("\\$c")[0]).replaceAll("\\s*[/:;.]$", "");
+                        break;
+                    case "260":
+                    case "264":
+                        year = value;
+                        break;
+                    case "650":
+                        genre = genre == null ? value : genre;
+                        break;
+                    case "876":
+                        copies = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return newBook(title, author, isbn, genre, year, copies);
+        }
+
+        // "$a Dune /$c Frank Herbert" -> "Dune / Frank Herbert"
+        private static String stripSubfields(String value) {
+            return value.replaceAll("\\$[a-z0-9]\\s?", "").trim();
+        }
+    }
+}
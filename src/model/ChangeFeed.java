@@ -0,0 +1,210 @@
+// src/model/ChangeFeed.java
+package model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Polls change_log and hands new changes to listeners, so every desk sees the
+ * others' edits without reloading whole tables.
+ *
+ * A poll reads "version > last seen", which costs one range scan of the primary
+ * key. AUTO_INCREMENT values are handed out before commit, so a transaction can
+ * commit a lower version after a higher one has already been read. Skipped
+ * versions are therefore remembered as gaps and re-read for GAP_WINDOW_MILLIS;
+ * after that the version is assumed to belong to a rolled-back transaction.
+ *
+ * Listeners run on the background-jobs thread and may query the database. Each
+ * poll delivers one batch in which repeated changes to the same row are collapsed
+ * into the latest one.
+ */
+public class ChangeFeed {
+    private static final long POLL_MILLIS = Long.getLong("library.changes.pollMillis", 2000);
+    private static final long GAP_WINDOW_MILLIS = 10_000;
+    private static final int MAX_GAPS = 10_000;
+    private static final int READ_LIMIT = 1000;
+    private static final int RETENTION_HOURS = 24;
+
+    private static final ChangeFeed SHARED = new ChangeFeed();
+
+    private final List<Consumer<List<ChangeLog.Change>>> listeners = new CopyOnWriteArrayList<>();
+    private final TreeMap<Long, Long> gaps = new TreeMap<>(); // version -> when it was first missed
+    private long lastSeen = -1; // Only touched on the background-jobs thread
+
+    public static ChangeFeed shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts polling and keeps the shared in-memory caches (search index,
+     * availability, members) in step with changes made by other desks.
+     */
+    public static void start() {
+        SHARED.addListener(ChangeFeed::applyToCaches);
+        BackgroundJobs.scheduleAtFixedRate("change_feed", SHARED::poll, 0, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        BackgroundJobs.scheduleDaily("change_log_prune", () -> {
+            try {
+                ChangeLog.prune(RETENTION_HOURS, 5000);
+            } catch (SQLException e) {
+                System.err.println("Change log prune failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public void addListener(Consumer<List<ChangeLog.Change>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<List<ChangeLog.Change>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Polls right away instead of waiting for the next tick, e.g. after this desk made a change.
+     */
+    public void pollNow() {
+        BackgroundJobs.execute("change_feed", this::poll);
+    }
+
+    // Listeners fetch the changed rows right away, which a lagging replica might not have yet
+    private void poll() {
+        Database.withPrimaryReads(this::pollOnce);
+    }
+
+    private void pollOnce() {
+        try (Connection conn = Database.getConnection()) {
+            if (lastSeen < 0) {
+                lastSeen = ChangeLog.currentVersion(conn);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            gaps.values().removeIf(missedAt -> now - missedAt > GAP_WINDOW_MILLIS);
+
+            Map<String, ChangeLog.Change> latestPerRow = new LinkedHashMap<>();
+            long cursor = gaps.isEmpty() ? lastSeen : Math.min(lastSeen, gaps.firstKey() - 1);
+            List<ChangeLog.Change> page;
+            do {
+                page = ChangeLog.readSince(conn, cursor, READ_LIMIT);
+                for (ChangeLog.Change change : page) {
+                    cursor = change.getVersion();
+                    if (accept(change, now)) {
+                        String row = change.getTable() + "#" + change.getRowId();
+                        // Re-insert so the batch stays in version order; an insert followed by updates is still an insert
+                        ChangeLog.Change previous = latestPerRow.remove(row);
+                        boolean stillInsert = previous != null && previous.getOp() == ChangeLog.Op.INSERT
+                                && change.getOp() == ChangeLog.Op.UPDATE;
+                        latestPerRow.put(row, stillInsert ? previous : change);
+                    }
+                }
+            } while (page.size() == READ_LIMIT);
+
+            if (!latestPerRow.isEmpty()) {
+                List<ChangeLog.Change> batch = new ArrayList<>(latestPerRow.values());
+                for (Consumer<List<ChangeLog.Change>> listener : listeners) {
+                    try {
+                        listener.accept(batch);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Change feed poll failed: " + e.getMessage());
+        }
+    }
+
+    // True if the change has not been delivered yet
+    private boolean accept(ChangeLog.Change change, long now) {
+        long version = change.getVersion();
+        if (version <= lastSeen) {
+            return gaps.remove(version) != null;
+        }
+        for (long missing = lastSeen + 1; missing < version && gaps.size() < MAX_GAPS; missing++) {
+            gaps.put(missing, now);
+        }
+        lastSeen = version;
+        return true;
+    }
+
+    private static void applyToCaches(List<ChangeLog.Change> changes) {
+        List<Integer> changedBooks = new ArrayList<>();
+        List<Integer> changedUsers = new ArrayList<>();
+        boolean booksReloaded = false;
+        for (ChangeLog.Change change : changes) {
+            switch (change.getTable()) {
+                case ChangeLog.BOOKS:
+                    if (change.getOp() == ChangeLog.Op.RELOAD) {
+                        booksReloaded = true;
+                    } else if (change.getOp() == ChangeLog.Op.DELETE) {
+                        BookSearchIndex.shared().remove(change.getRowId());
+                        AvailabilityCache.shared().remove(change.getRowId());
+                    } else {
+                        changedBooks.add(change.getRowId());
+                    }
+                    break;
+                case ChangeLog.USERS:
+                    if (change.getOp() == ChangeLog.Op.DELETE) {
+                        MemberIndex.shared().remove(change.getRowId());
+                    } else {
+                        changedUsers.add(change.getRowId());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        applyToMembers(changedUsers);
+
+        if (booksReloaded) {
+            BookSearchIndex.shared().invalidate();
+            try {
+                AvailabilityCache.shared().reconcile();
+            } catch (SQLException e) {
+                System.err.println("Could not reload availability: " + e.getMessage());
+            }
+            return;
+        }
+        if (changedBooks.isEmpty()) {
+            return;
+        }
+        try {
+            for (Book book : new BookRepository().findByIdsOnPrimary(changedBooks)) {
+                // Checkouts and returns log BOOKS updates too; put() skips books whose text did not change
+                BookSearchIndex.shared().put(book);
+                AvailabilityCache.shared().set(book.getId(), book.getAvailableQuantity());
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not apply book changes: " + e.getMessage());
+        }
+    }
+
+    private static void applyToMembers(List<Integer> changedUsers) {
+        if (changedUsers.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Integer> gone = new HashSet<>(changedUsers);
+            for (User user : new UserRepository().findByIdsOnPrimary(changedUsers)) {
+                // Most of these are loan counter updates; put() returns at once when the name is unchanged
+                MemberIndex.shared().put(user);
+                gone.remove(user.getId());
+            }
+            for (Integer id : gone) {
+                MemberIndex.shared().remove(id);
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not apply user changes: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+// src/model/ChangeLog.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Row-level change records in the change_log table.
+ *
+ * Every insert, update and delete of books, users and book_loans adds one row
+ * here in the same transaction as the change itself, so a record is visible
+ * exactly when the change is. Versions come from AUTO_INCREMENT and only ever
+ * grow; ChangeFeed polls them to keep other desks current.
+ */
+public class ChangeLog {
+    public static final String BOOKS = "books";
+    public static final String USERS = "users";
+    public static final String LOANS = "book_loans";
+
+    public enum Op {
+        INSERT, UPDATE, DELETE,
+        // The whole table changed (e.g. a bulk import); rowId is 0
+        RELOAD
+    }
+
+    private static final String RECORD = "INSERT INTO change_log (table_name, row_id, op) VALUES (?, ?, ?)";
+    private static final String READ_SINCE = "SELECT version, table_name, row_id, op FROM change_log " +
+            "WHERE version > ? ORDER BY version LIMIT ?";
+    private static final String CURRENT_VERSION = "SELECT COALESCE(MAX(version), 0) FROM change_log";
+    private static final String PRUNE = "DELETE FROM change_log " +
+            "WHERE changed_at < NOW() - INTERVAL ? HOUR ORDER BY version LIMIT ?";
+
+    /**
+     * One committed change.
+     */
+    public static final class Change {
+        private final long version;
+        private final String table;
+        private final int rowId;
+        private final Op op;
+
+        Change(long version, String table, int rowId, Op op) {
+            this.version = version;
+            this.table = table;
+            this.rowId = rowId;
+            this.op = op;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public int getRowId() {
+            return rowId;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        @Override
+        public String toString() {
+            return "Change{" + version + " " + op + " " + table + "#" + rowId + "}";
+        }
+    }
+
+    /**
+     * Records a change inside the caller's transaction.
+     */
+    public static void record(Connection conn, String table, int rowId, Op op) throws SQLException {
+        Database.wrote(); // Reads go to the primary for a while, so this desk sees its own change
+        try (PreparedStatement stmt = conn.prepareStatement(RECORD)) {
+            stmt.setString(1, table);
+            stmt.setInt(2, rowId);
+            stmt.setString(3, op.name());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Records the same kind of change for many rows inside the caller's transaction.
+     */
+    public static void recordAll(Connection conn, String table, Collection<Integer> rowIds, Op op) throws SQLException {
+        if (rowIds.isEmpty()) {
+            return;
+        }
+        Database.wrote();
+        try (PreparedStatement stmt = conn.prepareStatement(RECORD)) {
+            for (int rowId : rowIds) {
+                stmt.setString(1, table);
+                stmt.setInt(2, rowId);
+                stmt.setString(3, op.name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    static List<Change> readSince(Connection conn, long afterVersion, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(READ_SINCE)) {
+            stmt.setLong(1, afterVersion);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new Change(rs.getLong("version"), rs.getString("table_name"),
+                            rs.getInt("row_id"), Op.valueOf(rs.getString("op"))));
+                }
+            }
+        }
+        return changes;
+    }
+
+    static long currentVersion(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CURRENT_VERSION);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Deletes records older than the given age in small batches.
+     *
+     * @return the number of records deleted
+     */
+    static int prune(int olderThanHours, int batchSize) throws SQLException {
+        int total = 0;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PRUNE)) {
+            stmt.setInt(1, olderThanHours);
+            stmt.setInt(2, batchSize);
+            int deleted;
+            do {
+                deleted = stmt.executeUpdate();
+                total += deleted;
+            } while (deleted == batchSize);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,261 @@
+// src/model/CirculationQueue.java
+package model;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for checkouts and returns.
+ *
+ * Desks enqueue commands and get a future back; a single writer thread drains
+ * the queue into one transaction of up to library.circulation.maxBatch commands,
+ * waiting at most library.circulation.maxWaitMillis for a batch to fill. Each
+ * command runs under its own savepoint, so one failing item is rolled back on
+ * its own while the rest of the batch still commits with a single fsync.
+ *
+ * A deadlock aborts the whole InnoDB transaction, but a lock wait timeout only
+ * undoes the statement that timed out. Either way the writer rolls back the
+ * whole batch itself and re-runs it through RetryPolicy.
+ *
+ * shutdown() never interrupts the writer: a batch that is being written, retries
+ * included, is always finished, and commands still queued when the writer does
+ * not stop in time are failed.
+ */
+public class CirculationQueue {
+    private static final int MAX_BATCH = Integer.getInteger("library.circulation.maxBatch", 64);
+    private static final long MAX_WAIT_MILLIS = Long.getLong("library.circulation.maxWaitMillis", 5);
+
+    private static final CirculationQueue SHARED = new CirculationQueue(MAX_BATCH, MAX_WAIT_MILLIS);
+
+    // Queued by shutdown() to wake a writer blocked waiting for commands
+    private static final Command WAKE_UP = new Command(false, 0, 0, 0);
+
+    private final int maxBatch;
+    private final long maxWaitMillis;
+    private final BlockingQueue<Command> pending = new LinkedBlockingQueue<>();
+    private final Object lifecycle = new Object();
+    private Thread writer; // guarded by lifecycle
+    private volatile boolean stopping;
+
+    public CirculationQueue(int maxBatch, long maxWaitMillis) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+    }
+
+    public static CirculationQueue shared() {
+        return SHARED;
+    }
+
+    /**
+     * Queues a checkout. The result's item id is the book id.
+     */
+    public CompletableFuture<CirculationResult> loan(int bookId, int userId, int days) {
+        return enqueue(new Command(true, bookId, userId, days));
+    }
+
+    /**
+     * Queues a return. The result's item id is the loan id.
+     */
+    public CompletableFuture<CirculationResult> returnLoan(int loanId) {
+        return enqueue(new Command(false, loanId, 0, 0));
+    }
+
+    private CompletableFuture<CirculationResult> enqueue(Command command) {
+        if (stopping) {
+            command.future.completeExceptionally(new SQLException("Circulation queue is shut down"));
+            return command.future;
+        }
+        command.session = ReplicaSet.Session.current();
+        ensureStarted();
+        pending.add(command);
+        return command.future;
+    }
+
+    private void ensureStarted() {
+        synchronized (lifecycle) {
+            if (writer == null) {
+                writer = new Thread(this::run, "circulation-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting commands and waits briefly for queued ones to be written.
+     */
+    public void shutdown() {
+        stopping = true;
+        Thread t;
+        synchronized (lifecycle) {
+            t = writer;
+        }
+        if (t == null) {
+            return;
+        }
+        pending.add(WAKE_UP);
+        try {
+            t.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the writer did not get to, including commands enqueued while stopping
+        SQLException stopped = new SQLException("Circulation queue is shut down");
+        for (Command command; (command = pending.poll()) != null; ) {
+            if (command != WAKE_UP) {
+                command.future.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatch);
+        while (!stopping || !pending.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // Not interrupted by shutdown(); anything left is failed there
+            }
+            batch.removeIf(command -> command == WAKE_UP);
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Blocks for the first command, then gathers more until the batch is full or the wait is over
+    private void collect(List<Command> batch) throws InterruptedException {
+        Command first = stopping ? pending.poll() : pending.take();
+        if (first == null || first == WAKE_UP) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (batch.size() < maxBatch) {
+            pending.drainTo(batch, maxBatch - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) {
+                break;
+            }
+            Command next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Command> batch) {
+        List<CirculationResult> results;
+        try {
+            results = RetryPolicy.CIRCULATION.execute(() -> writeOnce(batch));
+        } catch (SQLException e) {
+            System.err.println("Circulation batch of " + batch.size() + " failed: " + e.getMessage());
+            for (Command command : batch) {
+                command.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (Map.Entry<Integer, Integer> change : availabilityChanges(batch, results).entrySet()) {
+            AvailabilityCache.shared().adjust(change.getKey(), change.getValue());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            CirculationResult result = results.get(i);
+            if (result.isSuccess()) {
+                // The writer thread has no session of its own; the desk that asked sees its change
+                if (command.session != null) {
+                    command.session.wrote();
+                }
+            }
+            command.future.complete(result);
+        }
+    }
+
+    private List<CirculationResult> writeOnce(List<Command> batch) throws SQLException {
+        List<CirculationResult> results = new ArrayList<>(batch.size());
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                for (Command command : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        results.add(apply(conn, command));
+                        conn.releaseSavepoint(savepoint);
+                    } catch (SQLException ex) {
+                        if (RetryPolicy.isRetryable(ex)) {
+                            // Not rolled back to the savepoint: a lock wait timeout only undoes the
+                            // failed statement, so the catch below rolls back the whole batch
+                            // before RetryPolicy runs it again
+                            throw ex;
+                        }
+                        conn.rollback(savepoint);
+                        results.add(CirculationResult.failed(command.itemId, ex.getMessage()));
+                    }
+                }
+                AvailabilityCache.shared().commit(conn, availabilityChanges(batch, results).keySet());
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+        return results;
+    }
+
+    // Net change in available copies per book for the commands that succeeded
+    private static Map<Integer, Integer> availabilityChanges(List<Command> batch, List<CirculationResult> results) {
+        Map<Integer, Integer> changes = new TreeMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            if (results.get(i).isSuccess()) {
+                changes.merge(command.bookId, command.checkout ? -1 : 1, Integer::sum);
+            }
+        }
+        return changes;
+    }
+
+    private static CirculationResult apply(Connection conn, Command command) throws SQLException {
+        if (command.checkout) {
+            int loanId = Database.checkoutOne(conn, command.itemId, command.userId, command.days);
+            command.bookId = command.itemId;
+            return loanId > 0
+                    ? CirculationResult.succeeded(command.itemId, loanId)
+                    : CirculationResult.failed(command.itemId, CirculationResult.NO_COPIES_AVAILABLE);
+        }
+        int bookId = Database.returnOne(conn, command.itemId);
+        command.bookId = bookId;
+        return bookId > 0
+                ? CirculationResult.succeeded(command.itemId, command.itemId)
+                : CirculationResult.failed(command.itemId, "Loan not found or already returned");
+    }
+
+    private static final class Command {
+        final boolean checkout;
+        final int itemId;
+        final int userId;
+        final int days;
+        final CompletableFuture<CirculationResult> future = new CompletableFuture<>();
+        int bookId; // Set by the writer thread once known
+        ReplicaSet.Session session; // Of the thread that enqueued the command
+
+        Command(boolean checkout, int itemId, int userId, int days) {
+            this.checkout = checkout;
+            this.itemId = itemId;
+            this.userId = userId;
+            this.days = days;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+// src/model/CirculationResult.java
+package model;
+
+/**
+ * Outcome of one item in a bulk checkout or return.
+ */
+public class CirculationResult {
+    // Shared by every checkout path, so desks and the API report the same reason
+    public static final String NO_COPIES_AVAILABLE = "No copies available";
+
+    private final int itemId;
+    private final boolean success;
+    private final int loanId;
+    private final String message;
+
+    private CirculationResult(int itemId, boolean success, int loanId, String message) {
+        this.itemId = itemId;
+        this.success = success;
+        this.loanId = loanId;
+        this.message = message;
+    }
+
+    public static CirculationResult succeeded(int itemId, int loanId) {
+        return new CirculationResult(itemId, true, loanId, "OK");
+    }
+
+    public static CirculationResult failed(int itemId, String message) {
+        return new CirculationResult(itemId, false, 0, message);
+    }
+
+    // The book id for a checkout, the loan id for a return
+    public int getItemId() {
+        return itemId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getLoanId() {
+        return loanId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "CirculationResult{" +
+                "itemId=" + itemId +
+                ", success=" + success +
+                ", loanId=" + loanId +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
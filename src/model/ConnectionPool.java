@@ -0,0 +1,386 @@
+// src/model/ConnectionPool.java
+package model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of physical MySQL connections.
+ *
+ * Callers get a proxy whose close() hands the physical connection back to the
+ * pool instead of closing it, so existing try-with-resources code keeps working.
+ * Connections are validated on borrow, idle ones above the minimum are evicted,
+ * and connections held longer than the leak threshold are reported with the
+ * thread that borrowed them. Capturing the borrower's stack trace on every borrow
+ * is too expensive to leave on, so it is only done with -Dlibrary.db.pool.leakTrace=true.
+ * Work that legitimately holds a connection for minutes, such as an export, calls
+ * exemptFromLeakDetection. Statements created through a handle are timed by
+ * QueryMetrics.
+ */
+public class ConnectionPool {
+    // Connections used within this window are handed out without a validation ping
+    private static final long VALIDATION_BYPASS_MILLIS = 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final boolean LEAK_TRACE = Boolean.getBoolean("library.db.pool.leakTrace");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionMillis;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int totalConnections; // guarded by idle
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int minIdle, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long leakDetectionMillis) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakDetectionMillis = leakDetectionMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, 30_000) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting at most the configured borrow timeout for one to become free.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis +
+                        "ms waiting for a database connection (active=" + borrowed.size() +
+                        ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowStack = leakDetectionMillis > 0 && LEAK_TRACE ? new Throwable("Connection borrowed here") : null;
+            pooled.borrowedBy = Thread.currentThread().getName();
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeValidIdleConnection() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MILLIS || isValid(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        synchronized (idle) {
+            totalConnections++;
+        }
+        long start = System.nanoTime();
+        try {
+            Connection physical = DriverManager.getConnection(url, user, password);
+            QueryMetrics.CONNECTION_OPEN.recordSince(start, false);
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            QueryMetrics.CONNECTION_OPEN.recordSince(start, true);
+            synchronized (idle) {
+                totalConnections--;
+            }
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            pooled.closeOpenStatements();
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            // Leave the connection the way the next borrower expects to find it
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            if (pooled.physical.isReadOnly()) {
+                pooled.physical.setReadOnly(false);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastUsed = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        synchronized (idle) {
+            totalConnections--;
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            evictIdleConnections();
+            reportLeaks();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            // Never let the scheduled task die
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdleConnections() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator(); // least recently used first
+            int removable = idle.size() - minIdle;
+            while (it.hasNext() && removable > 0) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastUsed > idleTimeoutMillis) {
+                    it.remove();
+                    evicted.add(pooled);
+                    removable--;
+                }
+            }
+        }
+        for (PooledConnection pooled : evicted) {
+            discard(pooled);
+        }
+    }
+
+    private void reportLeaks() {
+        if (leakDetectionMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionMillis) {
+                pooled.leakReported = true;
+                System.err.println("Possible connection leak: connection held for " +
+                        (now - pooled.borrowedAt) + "ms by thread " + pooled.borrowedBy +
+                        (pooled.borrowStack == null ? " (-Dlibrary.db.pool.leakTrace=true shows where)" : ""));
+                if (pooled.borrowStack != null) {
+                    pooled.borrowStack.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed) {
+            synchronized (idle) {
+                if (idle.size() >= minIdle || totalConnections >= maxSize) {
+                    return;
+                }
+            }
+            try {
+                PooledConnection pooled = createConnection();
+                synchronized (idle) {
+                    idle.offerLast(pooled);
+                }
+            } catch (SQLException e) {
+                System.err.println("Could not pre-open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keeps a long-running borrow, such as a streaming export, out of the leak report.
+     * Does nothing for connections that did not come from a pool.
+     */
+    public static void exemptFromLeakDetection(Connection conn) {
+        if (Proxy.isProxyClass(conn.getClass()) && Proxy.getInvocationHandler(conn) instanceof Handle) {
+            ((Handle) Proxy.getInvocationHandler(conn)).pooled.leakReported = true;
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            discard(pooled);
+        }
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        final List<Statement> openStatements = new ArrayList<>();
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowStack;
+        volatile String borrowedBy;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+
+        // The views rarely close their statements; close them before the connection is reused
+        void closeOpenStatements() {
+            synchronized (openStatements) {
+                for (Statement stmt : openStatements) {
+                    try {
+                        stmt.close();
+                    } catch (SQLException ignored) {
+                        // Statement is unusable either way
+                    }
+                }
+                openStatements.clear();
+            }
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean logicallyClosed;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (!logicallyClosed) {
+                            logicallyClosed = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    synchronized (pooled.openStatements) {
+                        pooled.openStatements.add((Statement) result);
+                    }
+                    // prepareStatement and prepareCall take the SQL first; createStatement gets it at execute
+                    String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                    // Statement.getConnection() must not hand out the physical connection
+                    return QueryMetrics.wrap((Statement) result, sql, (Connection) proxy);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+// src/model/DataExporter.java
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Writes books, users or loan history to CSV or JSON Lines in constant memory.
+ *
+ * Rows are streamed from MySQL one at a time (fetch size Integer.MIN_VALUE makes
+ * Connector/J read the result off the socket instead of buffering all of it) and
+ * encoded straight into a direct buffer that is drained to a FileChannel. The
+ * connection is busy until the export finishes, so large exports should not run
+ * on a pool that the desks share under load. With library.db.replicas set, the
+ * export reads from a replica.
+ */
+public class DataExporter {
+    public enum Format { CSV, JSONL }
+
+    public enum Dataset {
+        BOOKS("SELECT id, title, author, isbn, genre, publication_year, quantity, available_quantity, created_at " +
+                "FROM books ORDER BY id"),
+        // Passwords are never exported
+        USERS("SELECT id, username, role, full_name, email, created_at FROM users ORDER BY id"),
+        LOANS("SELECT bl.id, bl.book_id, b.title, bl.user_id, u.username, " +
+                "bl.loan_date, bl.due_date, bl.return_date, bl.status " +
+                "FROM book_loans bl " +
+                "JOIN books b ON bl.book_id = b.id " +
+                "JOIN users u ON bl.user_id = u.id "),
+        // Loans moved out of book_loans by LoanArchiver; their book or member may be gone
+        LOAN_ARCHIVE("SELECT bl.id, bl.book_id, b.title, bl.user_id, u.username, " +
+                "bl.loan_date, bl.due_date, bl.return_date, bl.status " +
+                "FROM book_loans_archive bl " +
+                "LEFT JOIN books b ON bl.book_id = b.id " +
+                "LEFT JOIN users u ON bl.user_id = u.id ");
+
+        private final String sql;
+
+        Dataset(String sql) {
+            this.sql = sql;
+        }
+
+        boolean isLoans() {
+            return this == LOANS || this == LOAN_ARCHIVE;
+        }
+    }
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    /**
+     * Exports a whole dataset. Loans and archived loans are written in (loan_date, id) order.
+     *
+     * @return the number of rows written
+     */
+    public long export(Dataset dataset, Format format, Path target) throws SQLException, IOException {
+        return export(dataset, format, target, null, null);
+    }
+
+    /**
+     * Exports a dataset; for loans and archived loans, only those with loan_date in [from, to] (either bound may be null).
+     *
+     * @return the number of rows written
+     */
+    public long export(Dataset dataset, Format format, Path target, Date from, Date to)
+            throws SQLException, IOException {
+        String sql = dataset.sql;
+        if (dataset.isLoans()) {
+            // Range scan on idx_book_loans_loan_date or idx_book_loans_archive_loan_date (loan_date, id)
+            StringBuilder where = new StringBuilder();
+            if (from != null) {
+                where.append("bl.loan_date >= ?");
+            }
+            if (to != null) {
+                where.append(where.length() > 0 ? " AND " : "").append("bl.loan_date <= ?");
+            }
+            sql += (where.length() > 0 ? "WHERE " + where + " " : "") + "ORDER BY bl.loan_date, bl.id";
+        }
+
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             ChannelWriter out = new ChannelWriter(target)) {
+            ConnectionPool.exemptFromLeakDetection(conn); // A large export streams for longer than the leak threshold
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            int i = 1;
+            if (dataset.isLoans() && from != null) {
+                stmt.setDate(i++, from);
+            }
+            if (dataset.isLoans() && to != null) {
+                stmt.setDate(i, to);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                String[] names = new String[columns];
+                boolean[] numeric = new boolean[columns];
+                for (int c = 0; c < columns; c++) {
+                    names[c] = meta.getColumnLabel(c + 1);
+                    numeric[c] = isNumeric(meta.getColumnType(c + 1));
+                }
+
+                StringBuilder line = new StringBuilder(256);
+                if (format == Format.CSV) {
+                    for (int c = 0; c < columns; c++) {
+                        line.append(c == 0 ? "" : ",");
+                        appendCsv(line, names[c]);
+                    }
+                    out.write(line.append('\n'));
+                }
+
+                long rows = 0;
+                while (rs.next()) {
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        for (int c = 0; c < columns; c++) {
+                            line.append(c == 0 ? "" : ",");
+                            String value = rs.getString(c + 1);
+                            if (value != null) {
+                                appendCsv(line, value);
+                            }
+                        }
+                    } else {
+                        line.append('{');
+                        for (int c = 0; c < columns; c++) {
+                            line.append(c == 0 ? "\"" : ",\"").append(names[c]).append("\":");
+                            String value = rs.getString(c + 1);
+                            if (value == null) {
+                                line.append("null");
+                            } else if (numeric[c]) {
+                                line.append(value);
+                            } else {
+                                appendJsonString(line, value);
+                            }
+                        }
+                        line.append('}');
+                    }
+                    out.write(line.append('\n'));
+                    rows++;
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void appendCsv(StringBuilder line, String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            line.append(c == '"' ? "\"\"" : String.valueOf(c));
+        }
+        line.append('"');
+    }
+
+    private static void appendJsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    // UTF-8 encodes text into one reusable direct buffer and drains it to the file when full
+    private static final class ChannelWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        ChannelWriter(Path target) throws IOException {
+            this.channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+            encoder.reset();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -2,27 +2,88 @@
 package model;
 
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class Database {
-    private static final String URL = "jdbc:mysql://localhost:3306/library_db?useSSL=false&serverTimezone=UTC";
-    private static final String USER = "root";
-    private static final String PASSWORD = "160892";
+    private static final String CONNECTION_OPTIONS = "useSSL=false&serverTimezone=UTC" +
+            "&rewriteBatchedStatements=true" +
+            // Pooled connections live long, so cache server-side prepared statements per connection
+            "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
+    // Point a desk, a benchmark or a test run at another server with -Dlibrary.db.url/user/password
+    private static final String URL = withOptions(
+            System.getProperty("library.db.url", "jdbc:mysql://localhost:3306/library_db"));
+    private static final String USER = System.getProperty("library.db.user", "root");
+    private static final String PASSWORD = System.getProperty("library.db.password", "160892");
 
-    public static Connection getConnection() throws SQLException {
+    // Pool sizing can be tuned per desk with -Dlibrary.db.pool.* system properties
+    private static final ConnectionPool POOL = createPool();
+    // Optional read replicas, -Dlibrary.db.replicas=jdbc:mysql://host:3307/library_db,...
+    private static final ReplicaSet REPLICAS = createReplicas();
+    // Set while reads must see the primary, e.g. while the change feed fetches the rows it was told about
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> false);
+
+    private static String withOptions(String url) {
+        return url + (url.contains("?") ? "&" : "?") + CONNECTION_OPTIONS;
+    }
+
+    private static ConnectionPool createPool() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Database connection established");
-            return conn;
         } catch (ClassNotFoundException e) {
-            throw new SQLException("MySQL JDBC Driver not found", e);
+            throw new IllegalStateException("MySQL JDBC Driver not found", e);
+        }
+        return new ConnectionPool(URL, USER, PASSWORD,
+                Integer.getInteger("library.db.pool.minIdle", 2),
+                Integer.getInteger("library.db.pool.maxSize", 10),
+                Long.getLong("library.db.pool.borrowTimeoutMillis", 5_000L),
+                Long.getLong("library.db.pool.idleTimeoutMillis", 600_000L),
+                Long.getLong("library.db.pool.leakDetectionMillis", 60_000L));
+    }
+
+    private static ReplicaSet createReplicas() {
+        List<ReplicaSet.Replica> replicas = new ArrayList<>();
+        String user = System.getProperty("library.db.replica.user", USER);
+        String password = System.getProperty("library.db.replica.password", PASSWORD);
+        for (String url : System.getProperty("library.db.replicas", "").split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            // No idle minimum and a short borrow timeout, so a replica that is down costs little before falling back
+            ConnectionPool pool = new ConnectionPool(withOptions(url.trim()), user, password,
+                    Integer.getInteger("library.db.replica.pool.minIdle", 0),
+                    Integer.getInteger("library.db.replica.pool.maxSize", 10),
+                    Long.getLong("library.db.replica.pool.borrowTimeoutMillis", 1_000L),
+                    Long.getLong("library.db.pool.idleTimeoutMillis", 600_000L),
+                    Long.getLong("library.db.pool.leakDetectionMillis", 60_000L));
+            replicas.add(new ReplicaSet.Replica(url.trim(), pool));
+        }
+        return new ReplicaSet(replicas);
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing it returns it to the pool.
+     * Everything that writes, and reads that must be current, use this one.
+     */
+    public static Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection conn = POOL.getConnection();
+            QueryMetrics.CONNECTION_ACQUIRE.recordSince(start, false);
+            return conn;
         } catch (SQLException e) {
+            QueryMetrics.CONNECTION_ACQUIRE.recordSince(start, true);
             System.err.println("Database connection failed");
             System.err.println("Error message: " + e.getMessage());
             System.err.println("Error code: " + e.getErrorCode());
@@ -31,143 +92,316 @@ public class Database {
         }
     }
 
+    /**
+     * Borrows a connection for a read that may be served by a replica a few
+     * seconds behind: browsing, search results, exports. Falls back to the
+     * primary when no replica is configured or usable, shortly after the
+     * current session wrote something, and inside withPrimaryReads. See ReplicaSet.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ReplicaSet.Session session = ReplicaSet.Session.current();
+        if (!PRIMARY_READS.get() && (session == null || !session.wroteRecently())) {
+            Connection conn = REPLICAS.getConnection();
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return getConnection();
+    }
+
+    /**
+     * Runs the action with getReadConnection() going to the primary on this thread.
+     */
+    static void withPrimaryReads(Runnable action) {
+        boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(true);
+        try {
+            action.run();
+        } finally {
+            PRIMARY_READS.set(previous);
+        }
+    }
+
+    // Called for every change recorded in change_log; starts the current session's read-your-writes window
+    static void wrote() {
+        ReplicaSet.Session session = ReplicaSet.Session.current();
+        if (session != null) {
+            session.wrote();
+        }
+    }
+
+    /**
+     * Starts the periodic replica lag checks; until a check passes, reads stay on the primary.
+     */
+    public static void startReplicaChecks() {
+        REPLICAS.start();
+    }
+
+    /**
+     * Creates or upgrades the schema. See SchemaMigrator for the list of migrations.
+     */
     public static void initializeDatabase() {
         try (Connection conn = getConnection()) {
-            // Check if tables exist, create if they don't
-            DatabaseMetaData dbm = conn.getMetaData();
-            
-            // Check and create users table
-            ResultSet usersTable = dbm.getTables(null, null, "users", null);
-            if (!usersTable.next()) {
-                String createUsersTable = "CREATE TABLE users (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "username VARCHAR(50) NOT NULL UNIQUE, " +
-                    "password VARCHAR(100) NOT NULL, " +
-                    "role ENUM('admin', 'librarian', 'member') NOT NULL, " +
-                    "full_name VARCHAR(100) NOT NULL, " +
-                    "email VARCHAR(100) NOT NULL, " +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                    ")";
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.execute(createUsersTable);
-                }
-                
-                // Insert default admin user
-                String insertAdmin = "INSERT INTO users (username, password, role, full_name, email) " +
-                                    "VALUES (?, ?, ?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(insertAdmin)) {
-                    pstmt.setString(1, "admin");
-                    pstmt.setString(2, "admin123");
-                    pstmt.setString(3, "admin");
-                    pstmt.setString(4, "System Administrator");
-                    pstmt.setString(5, "admin@library.com");
-                    pstmt.executeUpdate();
+            SchemaMigrator.migrate(conn);
+        } catch (SQLException e) {
+            System.err.println("Database initialization failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Checks out one copy of a book. Deadlocks and lock wait timeouts are retried.
+     *
+     * @return the loan, or a failed result if no copy is available or the member
+     *         has reached the loan limit
+     */
+    public static CirculationResult loanBook(int bookId, int userId, int days) throws SQLException {
+        CirculationResult result = RetryPolicy.CIRCULATION.execute(() -> {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+
+                try {
+                    int id = checkoutOne(conn, bookId, userId, days);
+                    if (id > 0) {
+                        AvailabilityCache.shared().commit(conn, Collections.singleton(bookId));
+                        return CirculationResult.succeeded(bookId, id);
+                    }
+                    conn.rollback();
+                    return CirculationResult.failed(bookId, CirculationResult.NO_COPIES_AVAILABLE);
+                } catch (LoanCounters.LimitReachedException ex) {
+                    conn.rollback();
+                    return CirculationResult.failed(bookId, ex.getMessage());
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
                 }
             }
-            
-            // Check and create books table
-            ResultSet booksTable = dbm.getTables(null, null, "books", null);
-            if (!booksTable.next()) {
-                String createBooksTable = "CREATE TABLE books (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "title VARCHAR(255) NOT NULL, " +
-                    "author VARCHAR(100) NOT NULL, " +
-                    "isbn VARCHAR(20) NOT NULL UNIQUE, " +
-                    "genre VARCHAR(50) NOT NULL, " +
-                    "publication_year INT, " +
-                    "quantity INT NOT NULL DEFAULT 1, " +
-                    "available_quantity INT NOT NULL DEFAULT 1, " +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                    ")";
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.execute(createBooksTable);
-                }
-                
-                // Insert some sample books
-                String insertBooks = "INSERT INTO books (title, author, isbn, genre, publication_year, quantity) " +
-                                    "VALUES (?, ?, ?, ?, ?, ?)";
-                try (PreparedStatement pstmt = conn.prepareStatement(insertBooks)) {
-                    // Sample book 1
-                    pstmt.setString(1, "To Kill a Mockingbird");
-                    pstmt.setString(2, "Harper Lee");
-                    pstmt.setString(3, "9780061120084");
-                    pstmt.setString(4, "Fiction");
-                    pstmt.setInt(5, 1960);
-                    pstmt.setInt(6, 5);
-                    pstmt.addBatch();
-                    
-                    // Sample book 2
-                    pstmt.setString(1, "1984");
-                    pstmt.setString(2, "George Orwell");
-                    pstmt.setString(3, "9780451524935");
-                    pstmt.setString(4, "Dystopian");
-                    pstmt.setInt(5, 1949);
-                    pstmt.setInt(6, 3);
-                    pstmt.addBatch();
-                    
-                    pstmt.executeBatch();
+        });
+        if (result.isSuccess()) {
+            AvailabilityCache.shared().adjust(bookId, -1);
+        }
+        return result;
+    }
+
+    /**
+     * Marks a loan as returned. Deadlocks and lock wait timeouts are retried.
+     *
+     * @return false if the loan does not exist or was already returned
+     */
+    public static boolean returnBook(int loanId) throws SQLException {
+        int bookId = RetryPolicy.CIRCULATION.execute(() -> {
+            try (Connection conn = getConnection()) {
+                conn.setAutoCommit(false);
+
+                try {
+                    int id = returnOne(conn, loanId);
+                    if (id > 0) {
+                        AvailabilityCache.shared().commit(conn, Collections.singleton(id));
+                    } else {
+                        conn.commit();
+                    }
+                    return id;
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
                 }
             }
-            
-            // Check and create book_loans table
-            ResultSet loansTable = dbm.getTables(null, null, "book_loans", null);
-            if (!loansTable.next()) {
-                String createLoansTable = "CREATE TABLE book_loans (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                    "book_id INT NOT NULL, " +
-                    "user_id INT NOT NULL, " +
-                    "loan_date DATE NOT NULL, " +
-                    "due_date DATE NOT NULL, " +
-                    "return_date DATE, " +
-                    "status ENUM('borrowed', 'returned', 'overdue') NOT NULL, " +
-                    "FOREIGN KEY (book_id) REFERENCES books(id), " +
-                    "FOREIGN KEY (user_id) REFERENCES users(id)" +
-                    ")";
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.execute(createLoansTable);
+        });
+        if (bookId > 0) {
+            AvailabilityCache.shared().adjust(bookId, 1);
+        }
+        return bookId > 0;
+    }
+
+    /**
+     * Checkout inside the caller's transaction.
+     *
+     * The guarded decrement is the availability check: it only matches while a
+     * copy is free, so no SELECT ... FOR UPDATE round trip is needed and the book
+     * row is locked for as short a time as possible.
+     *
+     * @return the new loan id, or 0 if no copy is available
+     */
+    static int checkoutOne(Connection conn, int bookId, int userId, int days) throws SQLException {
+        String updateSql = "UPDATE books SET available_quantity = available_quantity - 1 " +
+                "WHERE id = ? AND available_quantity > 0";
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+            updateStmt.setInt(1, bookId);
+            if (updateStmt.executeUpdate() == 0) {
+                return 0;
+            }
+        }
+        // Before the insert, whose foreign key check would otherwise share-lock the member row first
+        LoanCounters.borrow(conn, userId, 1);
+
+        String loanSql = "INSERT INTO book_loans (book_id, user_id, loan_date, due_date, status) " +
+                "VALUES (?, ?, CURRENT_DATE(), DATE_ADD(CURRENT_DATE(), INTERVAL ? DAY), 'borrowed')";
+        try (PreparedStatement loanStmt = conn.prepareStatement(loanSql, Statement.RETURN_GENERATED_KEYS)) {
+            loanStmt.setInt(1, bookId);
+            loanStmt.setInt(2, userId);
+            loanStmt.setInt(3, days);
+            loanStmt.executeUpdate();
+            int loanId;
+            try (ResultSet keys = loanStmt.getGeneratedKeys()) {
+                loanId = keys.next() ? keys.getInt(1) : 0;
+            }
+            ChangeLog.record(conn, ChangeLog.LOANS, loanId, ChangeLog.Op.INSERT);
+            ChangeLog.record(conn, ChangeLog.BOOKS, bookId, ChangeLog.Op.UPDATE);
+            return loanId;
+        }
+    }
+
+    /**
+     * Return inside the caller's transaction. Only a loan that is still out is
+     * closed, so returning the same loan twice cannot inflate availability.
+     *
+     * @return the id of the returned book, or 0 if there was nothing to return
+     */
+    static int returnOne(Connection conn, int loanId) throws SQLException {
+        // The status decides which of the member's counters go down
+        int bookId;
+        int userId;
+        boolean overdue;
+        try (PreparedStatement getLoanStmt = conn.prepareStatement(
+                "SELECT book_id, user_id, status FROM book_loans WHERE id = ? FOR UPDATE")) {
+            getLoanStmt.setInt(1, loanId);
+            try (ResultSet rs = getLoanStmt.executeQuery()) {
+                if (!rs.next() || "returned".equals(rs.getString("status"))) {
+                    return 0;
                 }
+                bookId = rs.getInt("book_id");
+                userId = rs.getInt("user_id");
+                overdue = "overdue".equals(rs.getString("status"));
             }
+        }
 
-            
-        } catch (SQLException e) {
-            System.err.println("Database initialization failed: " + e.getMessage());
-            e.printStackTrace();
+        String updateLoanSql = "UPDATE book_loans SET return_date = CURRENT_DATE(), status = 'returned' WHERE id = ?";
+        try (PreparedStatement updateLoanStmt = conn.prepareStatement(updateLoanSql)) {
+            updateLoanStmt.setInt(1, loanId);
+            updateLoanStmt.executeUpdate();
+        }
+
+        String updateBookSql = "UPDATE books SET available_quantity = available_quantity + 1 WHERE id = ?";
+        try (PreparedStatement updateBookStmt = conn.prepareStatement(updateBookSql)) {
+            updateBookStmt.setInt(1, bookId);
+            updateBookStmt.executeUpdate();
         }
+        LoanCounters.release(conn, Collections.singletonMap(userId, new int[]{1, overdue ? 1 : 0}));
+        ChangeLog.record(conn, ChangeLog.LOANS, loanId, ChangeLog.Op.UPDATE);
+        ChangeLog.record(conn, ChangeLog.BOOKS, bookId, ChangeLog.Op.UPDATE);
+        return bookId;
+    }
+
+    /**
+     * Checks out several books to one member in a single transaction.
+     * Deadlocks and lock wait timeouts are retried.
+     *
+     * All requested book rows are locked up front in ascending id order, so two
+     * desks running bulk checkouts cannot deadlock on each other. Books without a
+     * free copy are reported as failures; the rest are committed together.
+     *
+     * @return one result per requested book id, in the order given
+     */
+    public static List<CirculationResult> loanBooks(int userId, List<Integer> bookIds, int days) throws SQLException {
+        return RetryPolicy.CIRCULATION.execute(() -> loanBooksOnce(userId, bookIds, days));
     }
 
-    public static boolean loanBook(int bookId, int userId, int days) throws SQLException {
+    private static List<CirculationResult> loanBooksOnce(int userId, List<Integer> bookIds, int days) throws SQLException {
+        List<CirculationResult> results = new ArrayList<>(bookIds.size());
+        if (bookIds.isEmpty()) {
+            return results;
+        }
+
         try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
 
             try {
-                // Check availability
-                String checkSql = "SELECT available_quantity FROM books WHERE id = ? FOR UPDATE";
-                PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                checkStmt.setInt(1, bookId);
-                ResultSet rs = checkStmt.executeQuery();
-
-                if (rs.next() && rs.getInt("available_quantity") > 0) {
-                    // Create loan
-                    String loanSql = "INSERT INTO book_loans (book_id, user_id, due_date, status) " +
-                            "VALUES (?, ?, DATE_ADD(CURRENT_DATE(), INTERVAL ? DAY), 'borrowed')";
-                    PreparedStatement loanStmt = conn.prepareStatement(loanSql);
-                    loanStmt.setInt(1, bookId);
-                    loanStmt.setInt(2, userId);
-                    loanStmt.setInt(3, days);
-                    loanStmt.executeUpdate();
-
-                    // Update availability
-                    String updateSql = "UPDATE books SET available_quantity = available_quantity - 1 WHERE id = ?";
-                    PreparedStatement updateStmt = conn.prepareStatement(updateSql);
-                    updateStmt.setInt(1, bookId);
-                    updateStmt.executeUpdate();
-
-                    conn.commit();
-                    return true;
-                } else {
-                    conn.rollback();
-                    return false;
+                // 1. Lock the books in a deterministic order
+                Set<Integer> distinctIds = new TreeSet<>(bookIds);
+                Map<Integer, Integer> available = new HashMap<>();
+                String lockSql = "SELECT id, available_quantity FROM books WHERE id IN (" +
+                        placeholders(distinctIds.size()) + ") ORDER BY id FOR UPDATE";
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockSql)) {
+                    int i = 1;
+                    for (int id : distinctIds) {
+                        lockStmt.setInt(i++, id);
+                    }
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        while (rs.next()) {
+                            available.put(rs.getInt("id"), rs.getInt("available_quantity"));
+                        }
+                    }
+                }
+
+                // 2. Decide per item within the member's loan limit, then create the loans in one batch
+                int allowed = LoanCounters.remaining(conn, userId);
+                List<Integer> granted = new ArrayList<>();
+                Map<Integer, Integer> takenPerBook = new TreeMap<>();
+                for (int bookId : bookIds) {
+                    Integer free = available.get(bookId);
+                    if (free == null) {
+                        results.add(CirculationResult.failed(bookId, "Book not found"));
+                    } else if (free <= 0) {
+                        results.add(CirculationResult.failed(bookId, CirculationResult.NO_COPIES_AVAILABLE));
+                    } else if (granted.size() >= allowed) {
+                        results.add(CirculationResult.failed(bookId,
+                                "Loan limit of " + LoanCounters.MAX_PER_MEMBER + " books reached"));
+                    } else {
+                        available.put(bookId, free - 1);
+                        takenPerBook.merge(bookId, 1, Integer::sum);
+                        granted.add(bookId);
+                        results.add(null); // Filled in with the loan id below
+                    }
                 }
+
+                if (!granted.isEmpty()) {
+                    LoanCounters.borrow(conn, userId, granted.size());
+                    String loanSql = "INSERT INTO book_loans (book_id, user_id, loan_date, due_date, status) " +
+                            "VALUES (?, ?, CURRENT_DATE(), DATE_ADD(CURRENT_DATE(), INTERVAL ? DAY), 'borrowed')";
+                    List<Integer> loanIds = new ArrayList<>(granted.size());
+                    try (PreparedStatement loanStmt = conn.prepareStatement(loanSql, Statement.RETURN_GENERATED_KEYS)) {
+                        for (int bookId : granted) {
+                            loanStmt.setInt(1, bookId);
+                            loanStmt.setInt(2, userId);
+                            loanStmt.setInt(3, days);
+                            loanStmt.addBatch();
+                        }
+                        loanStmt.executeBatch();
+                        try (ResultSet keys = loanStmt.getGeneratedKeys()) {
+                            while (keys.next()) {
+                                loanIds.add(keys.getInt(1));
+                            }
+                        }
+                    }
+
+                    // 3. Update availability, one row per book, in id order
+                    String updateSql = "UPDATE books SET available_quantity = available_quantity - ? WHERE id = ?";
+                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                        for (Map.Entry<Integer, Integer> entry : takenPerBook.entrySet()) {
+                            updateStmt.setInt(1, entry.getValue());
+                            updateStmt.setInt(2, entry.getKey());
+                            updateStmt.addBatch();
+                        }
+                        updateStmt.executeBatch();
+                    }
+                    ChangeLog.recordAll(conn, ChangeLog.LOANS, loanIds, ChangeLog.Op.INSERT);
+                    ChangeLog.recordAll(conn, ChangeLog.BOOKS, takenPerBook.keySet(), ChangeLog.Op.UPDATE);
+
+                    int next = 0;
+                    for (int i = 0; i < results.size(); i++) {
+                        if (results.get(i) == null) {
+                            int loanId = next < loanIds.size() ? loanIds.get(next) : 0;
+                            results.set(i, CirculationResult.succeeded(bookIds.get(i), loanId));
+                            next++;
+                        }
+                    }
+                }
+
+                AvailabilityCache.shared().commit(conn, takenPerBook.keySet());
+                for (Map.Entry<Integer, Integer> entry : takenPerBook.entrySet()) {
+                    AvailabilityCache.shared().adjust(entry.getKey(), -entry.getValue());
+                }
+                return results;
             } catch (SQLException ex) {
                 conn.rollback();
                 throw ex;
@@ -175,44 +409,118 @@ public class Database {
         }
     }
 
-    // Add this method to your Database class
-    public static boolean returnBook(int loanId) throws SQLException {
+    /**
+     * Returns several loans in a single transaction.
+     * Deadlocks and lock wait timeouts are retried.
+     *
+     * @return one result per loan id, in the order given
+     */
+    public static List<CirculationResult> returnBooks(List<Integer> loanIds) throws SQLException {
+        return RetryPolicy.CIRCULATION.execute(() -> returnBooksOnce(loanIds));
+    }
+
+    private static List<CirculationResult> returnBooksOnce(List<Integer> loanIds) throws SQLException {
+        List<CirculationResult> results = new ArrayList<>(loanIds.size());
+        if (loanIds.isEmpty()) {
+            return results;
+        }
+
         try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
 
             try {
-                // 1. Get book ID from loan
-                String getLoanSql = "SELECT book_id FROM book_loans WHERE id = ? FOR UPDATE";
-                PreparedStatement getLoanStmt = conn.prepareStatement(getLoanSql);
-                getLoanStmt.setInt(1, loanId);
-                ResultSet rs = getLoanStmt.executeQuery();
-
-                if (rs.next()) {
-                    int bookId = rs.getInt("book_id");
-
-                    // 2. Update loan status
-                    String updateLoanSql = "UPDATE book_loans SET return_date = CURRENT_DATE(), status = 'returned' WHERE id = ?";
-                    PreparedStatement updateLoanStmt = conn.prepareStatement(updateLoanSql);
-                    updateLoanStmt.setInt(1, loanId);
-                    updateLoanStmt.executeUpdate();
-
-                    // 3. Update book availability
-                    String updateBookSql = "UPDATE books SET available_quantity = available_quantity + 1 WHERE id = ?";
-                    PreparedStatement updateBookStmt = conn.prepareStatement(updateBookSql);
-                    updateBookStmt.setInt(1, bookId);
-                    updateBookStmt.executeUpdate();
-
-                    conn.commit();
-                    return true;
+                // 1. Lock the loans in id order and find their books
+                Set<Integer> distinctIds = new TreeSet<>(loanIds);
+                Map<Integer, Integer> bookOfLoan = new HashMap<>();
+                Map<Integer, Integer> userOfLoan = new HashMap<>();
+                Set<Integer> openLoans = new HashSet<>();
+                Set<Integer> overdueLoans = new HashSet<>();
+                String lockSql = "SELECT id, book_id, user_id, status FROM book_loans WHERE id IN (" +
+                        placeholders(distinctIds.size()) + ") ORDER BY id FOR UPDATE";
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockSql)) {
+                    int i = 1;
+                    for (int id : distinctIds) {
+                        lockStmt.setInt(i++, id);
+                    }
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        while (rs.next()) {
+                            int loanId = rs.getInt("id");
+                            bookOfLoan.put(loanId, rs.getInt("book_id"));
+                            userOfLoan.put(loanId, rs.getInt("user_id"));
+                            if (!"returned".equals(rs.getString("status"))) {
+                                openLoans.add(loanId);
+                            }
+                            if ("overdue".equals(rs.getString("status"))) {
+                                overdueLoans.add(loanId);
+                            }
+                        }
+                    }
                 }
-                return false;
+
+                // 2. Close the open loans in one batch
+                Map<Integer, Integer> returnedPerBook = new TreeMap<>();
+                Map<Integer, int[]> returnedPerUser = new TreeMap<>(); // {returned, of which overdue}
+                List<Integer> returned = new ArrayList<>();
+                String updateLoanSql = "UPDATE book_loans SET return_date = CURRENT_DATE(), status = 'returned' WHERE id = ?";
+                try (PreparedStatement updateLoanStmt = conn.prepareStatement(updateLoanSql)) {
+                    for (int loanId : loanIds) {
+                        if (!bookOfLoan.containsKey(loanId)) {
+                            results.add(CirculationResult.failed(loanId, "Loan not found"));
+                        } else if (!openLoans.remove(loanId)) {
+                            results.add(CirculationResult.failed(loanId, "Already returned"));
+                        } else {
+                            updateLoanStmt.setInt(1, loanId);
+                            updateLoanStmt.addBatch();
+                            returnedPerBook.merge(bookOfLoan.get(loanId), 1, Integer::sum);
+                            int[] counts = returnedPerUser.computeIfAbsent(userOfLoan.get(loanId), k -> new int[2]);
+                            counts[0]++;
+                            counts[1] += overdueLoans.contains(loanId) ? 1 : 0;
+                            returned.add(loanId);
+                            results.add(CirculationResult.succeeded(loanId, loanId));
+                        }
+                    }
+                    if (!returnedPerBook.isEmpty()) {
+                        updateLoanStmt.executeBatch();
+                    }
+                }
+
+                // 3. Update availability, one row per book, in id order
+                if (!returnedPerBook.isEmpty()) {
+                    String updateBookSql = "UPDATE books SET available_quantity = available_quantity + ? WHERE id = ?";
+                    try (PreparedStatement updateBookStmt = conn.prepareStatement(updateBookSql)) {
+                        for (Map.Entry<Integer, Integer> entry : returnedPerBook.entrySet()) {
+                            updateBookStmt.setInt(1, entry.getValue());
+                            updateBookStmt.setInt(2, entry.getKey());
+                            updateBookStmt.addBatch();
+                        }
+                        updateBookStmt.executeBatch();
+                    }
+                    LoanCounters.release(conn, returnedPerUser);
+                    ChangeLog.recordAll(conn, ChangeLog.LOANS, returned, ChangeLog.Op.UPDATE);
+                    ChangeLog.recordAll(conn, ChangeLog.BOOKS, returnedPerBook.keySet(), ChangeLog.Op.UPDATE);
+                }
+
+                AvailabilityCache.shared().commit(conn, returnedPerBook.keySet());
+                for (Map.Entry<Integer, Integer> entry : returnedPerBook.entrySet()) {
+                    AvailabilityCache.shared().adjust(entry.getKey(), entry.getValue());
+                }
+                return results;
             } catch (SQLException ex) {
                 conn.rollback();
                 throw ex;
             }
         }
     }
-    
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    // Returns the connection to the pool
     public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
@@ -222,4 +530,9 @@ public class Database {
             }
         }
     }
+
+    public static void shutdown() {
+        REPLICAS.close();
+        POOL.close();
+    }
 }
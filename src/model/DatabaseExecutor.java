@@ -0,0 +1,47 @@
+// src/model/DatabaseExecutor.java
+package model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for blocking data access so callers (mostly Swing panels) never
+ * run JDBC on their own thread. Uses one virtual thread per task when the JVM
+ * supports it (Java 21+) and falls back to a cached pool of daemon threads.
+ * The connection pool bounds how many tasks actually talk to MySQL at once.
+ * Submitted tasks run in the submitting thread's ReplicaSet.Session.
+ */
+public final class DatabaseExecutor {
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    private DatabaseExecutor() {}
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Looked up reflectively so the sources still compile on older JDKs
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public static <T> Future<T> submit(Callable<T> task) {
+        return EXECUTOR.submit(ReplicaSet.Session.propagate(task));
+    }
+
+    public static Future<?> submit(Runnable task) {
+        return EXECUTOR.submit(ReplicaSet.Session.propagate(task));
+    }
+
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+}
@@ -0,0 +1,159 @@
+// src/model/LoanArchiver.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves returned loans that were due more than library.archive.afterDays
+ * (365) days ago from book_loans to book_loans_archive, so the loan list,
+ * overdue checks and member deletes only ever look at recent loans.
+ *
+ * Each batch of library.archive.batchSize (500) loans is copied and deleted
+ * in one short transaction picked through the (status, due_date) index,
+ * followed by a pause of library.archive.pauseMillis (100) so desks are never
+ * held up for long. The run happens on its own thread because the first one
+ * can move years of history. Other desks are told with a single RELOAD of
+ * book_loans at the end rather than one change per archived loan.
+ * Archived loans stay reachable through LoanFilter's includeArchived option.
+ * Set afterDays to 0 to turn archiving off.
+ */
+public class LoanArchiver {
+    static final String JOB_NAME = "loan_archive";
+    private static final int AFTER_DAYS = Integer.getInteger("library.archive.afterDays", 365);
+    private static final int BATCH_SIZE = Integer.getInteger("library.archive.batchSize", 500);
+    private static final long PAUSE_MILLIS = Long.getLong("library.archive.pauseMillis", 100);
+
+    private static final String LAST_COMPLETED =
+            "SELECT last_completed >= CURRENT_DATE() FROM maintenance_state WHERE job_name = ?";
+    private static final String PICK_BATCH = "SELECT id FROM book_loans " +
+            "WHERE status = 'returned' AND due_date < CURRENT_DATE() - INTERVAL ? DAY " +
+            "ORDER BY due_date LIMIT ? FOR UPDATE";
+    private static final String COLUMNS = "id, book_id, user_id, loan_date, due_date, return_date, status";
+    private static final String RECORD_COMPLETED = "INSERT INTO maintenance_state (job_name, last_completed) " +
+            "VALUES (?, CURRENT_DATE()) ON DUPLICATE KEY UPDATE last_completed = VALUES(last_completed)";
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    /**
+     * Archives at startup (unless already done today) and daily after midnight.
+     */
+    public static void start() {
+        if (AFTER_DAYS <= 0) {
+            return;
+        }
+        BackgroundJobs.scheduleDaily(JOB_NAME, () -> {
+            // Keep the shared scheduler free for the change feed and the other jobs
+            if (!RUNNING.compareAndSet(false, true)) {
+                return;
+            }
+            DatabaseExecutor.submit(() -> {
+                try {
+                    int archived = new LoanArchiver().archive();
+                    if (archived > 0) {
+                        System.out.println("Archived " + archived + " returned loans");
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Loan archiving failed: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    RUNNING.set(false);
+                }
+            });
+        });
+    }
+
+    /**
+     * @return the number of loans moved to the archive
+     */
+    public int archive() throws SQLException, InterruptedException {
+        int total = 0;
+        try (Connection conn = Database.getConnection()) {
+            if (completedToday(conn)) {
+                return 0;
+            }
+
+            try {
+                int moved;
+                do {
+                    moved = moveBatch(conn);
+                    total += moved;
+                    if (moved == BATCH_SIZE && PAUSE_MILLIS > 0) {
+                        Thread.sleep(PAUSE_MILLIS);
+                    }
+                } while (moved == BATCH_SIZE);
+            } finally {
+                // Also after a failed run, so desks drop the loans already moved
+                if (total > 0) {
+                    ChangeLog.record(conn, ChangeLog.LOANS, 0, ChangeLog.Op.RELOAD);
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(RECORD_COMPLETED)) {
+                stmt.setString(1, JOB_NAME);
+                stmt.executeUpdate();
+            }
+        }
+        return total;
+    }
+
+    private int moveBatch(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(PICK_BATCH)) {
+                stmt.setInt(1, AFTER_DAYS);
+                stmt.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (!ids.isEmpty()) {
+                String in = placeholders(ids.size());
+                try (PreparedStatement copy = conn.prepareStatement("INSERT INTO book_loans_archive (" + COLUMNS +
+                        ") SELECT " + COLUMNS + " FROM book_loans WHERE id IN (" + in + ")");
+                     PreparedStatement delete = conn.prepareStatement(
+                             "DELETE FROM book_loans WHERE id IN (" + in + ")")) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        copy.setInt(i + 1, ids.get(i));
+                        delete.setInt(i + 1, ids.get(i));
+                    }
+                    copy.executeUpdate();
+                    delete.executeUpdate();
+                }
+            }
+            conn.commit();
+            return ids.size();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private boolean completedToday(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LAST_COMPLETED)) {
+            stmt.setString(1, JOB_NAME);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
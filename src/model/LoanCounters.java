@@ -0,0 +1,298 @@
+// src/model/LoanCounters.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The users.active_loans and users.overdue_loans counters.
+ *
+ * active_loans counts borrowed and overdue loans (books still out), and
+ * overdue_loans the overdue ones among them. Checkouts, returns and the overdue
+ * sweep adjust them in the same transaction as the loans, always after the
+ * book rows, so delete checks and the optional loan limit
+ * (library.loans.maxPerMember, 0 for none) are a primary-key read.
+ *
+ * A daily rebuild recounts the loans of each block of library.loanCounters.chunkSize
+ * (1000) members on library.loanCounters.threads (4) connections and fixes
+ * counters that drifted, e.g. after loans were edited by hand or generated in bulk.
+ */
+public class LoanCounters {
+    static final String JOB_NAME = "loan_counter_rebuild";
+    public static final int MAX_PER_MEMBER = Integer.getInteger("library.loans.maxPerMember", 0);
+    private static final int CHUNK_SIZE = Integer.getInteger("library.loanCounters.chunkSize", 1000);
+    private static final int THREADS = Integer.getInteger("library.loanCounters.threads", 4);
+
+    private static final String BORROW = "UPDATE users SET active_loans = active_loans + ? WHERE id = ?";
+    // Only matches while the member stays within the limit
+    private static final String BORROW_WITHIN_LIMIT = BORROW + " AND active_loans + ? <= ?";
+    private static final String LOCK_ACTIVE = "SELECT active_loans FROM users WHERE id = ? FOR UPDATE";
+    private static final String RELEASE = "UPDATE users SET active_loans = active_loans - ?, " +
+            "overdue_loans = overdue_loans - ? WHERE id = ?";
+    private static final String MARK_OVERDUE = "UPDATE users SET overdue_loans = overdue_loans + ? WHERE id = ?";
+
+    private static final String LAST_COMPLETED =
+            "SELECT last_completed >= CURRENT_DATE() FROM maintenance_state WHERE job_name = ?";
+    private static final String RECORD_COMPLETED = "INSERT INTO maintenance_state (job_name, last_completed) " +
+            "VALUES (?, CURRENT_DATE()) ON DUPLICATE KEY UPDATE last_completed = VALUES(last_completed)";
+    private static final String ID_RANGE = "SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id), -1) FROM users";
+    private static final String LOCK_CHUNK = "SELECT id, active_loans, overdue_loans FROM users " +
+            "WHERE id BETWEEN ? AND ? FOR UPDATE";
+    // Served by idx_book_loans_user_status
+    private static final String COUNT_CHUNK = "SELECT user_id, COUNT(*), SUM(status = 'overdue') FROM book_loans " +
+            "WHERE user_id BETWEEN ? AND ? AND status IN ('borrowed', 'overdue') GROUP BY user_id";
+    private static final String FIX = "UPDATE users SET active_loans = ?, overdue_loans = ? WHERE id = ?";
+
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    /**
+     * Thrown by borrow() when the checkout would take the member past MAX_PER_MEMBER.
+     * The transaction is still usable; only the checkout has to be abandoned.
+     */
+    public static class LimitReachedException extends SQLException {
+        LimitReachedException() {
+            super("Loan limit of " + MAX_PER_MEMBER + " books reached");
+        }
+    }
+
+    /**
+     * Counts new loans for a member inside the caller's transaction.
+     *
+     * @throws LimitReachedException if that would take the member over the loan limit
+     */
+    static void borrow(Connection conn, int userId, int count) throws SQLException {
+        boolean limited = MAX_PER_MEMBER > 0;
+        try (PreparedStatement stmt = conn.prepareStatement(limited ? BORROW_WITHIN_LIMIT : BORROW)) {
+            stmt.setInt(1, count);
+            stmt.setInt(2, userId);
+            if (limited) {
+                stmt.setInt(3, count);
+                stmt.setInt(4, MAX_PER_MEMBER);
+            }
+            // Without a limit a missing member is left to the book_loans foreign key
+            if (stmt.executeUpdate() == 0 && limited) {
+                throw new LimitReachedException();
+            }
+        }
+        ChangeLog.record(conn, ChangeLog.USERS, userId, ChangeLog.Op.UPDATE);
+    }
+
+    /**
+     * How many more books the member may borrow, locking the member's row
+     * until the caller's transaction ends. Reads nothing without a limit.
+     */
+    static int remaining(Connection conn, int userId) throws SQLException {
+        if (MAX_PER_MEMBER <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_ACTIVE)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Math.max(0, MAX_PER_MEMBER - rs.getInt(1)) : 0;
+            }
+        }
+    }
+
+    /**
+     * Counts returned loans inside the caller's transaction.
+     *
+     * @param returned per member id: {loans returned, of which were overdue}, applied in key order
+     */
+    static void release(Connection conn, Map<Integer, int[]> returned) throws SQLException {
+        if (returned.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(RELEASE)) {
+            for (Map.Entry<Integer, int[]> entry : returned.entrySet()) {
+                stmt.setInt(1, entry.getValue()[0]);
+                stmt.setInt(2, entry.getValue()[1]);
+                stmt.setInt(3, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        ChangeLog.recordAll(conn, ChangeLog.USERS, returned.keySet(), ChangeLog.Op.UPDATE);
+    }
+
+    /**
+     * Counts loans that became overdue inside the caller's transaction.
+     *
+     * @param marked per member id, applied in key order
+     */
+    static void markedOverdue(Connection conn, Map<Integer, Integer> marked) throws SQLException {
+        if (marked.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(MARK_OVERDUE)) {
+            for (Map.Entry<Integer, Integer> entry : marked.entrySet()) {
+                stmt.setInt(1, entry.getValue());
+                stmt.setInt(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        ChangeLog.recordAll(conn, ChangeLog.USERS, marked.keySet(), ChangeLog.Op.UPDATE);
+    }
+
+    /**
+     * Rebuilds at startup (unless already done today) and daily after midnight.
+     */
+    public static void start() {
+        BackgroundJobs.scheduleDaily(JOB_NAME, () -> {
+            // Keep the shared scheduler free for the change feed and the other jobs
+            if (!RUNNING.compareAndSet(false, true)) {
+                return;
+            }
+            DatabaseExecutor.submit(() -> {
+                try {
+                    if (!completedToday()) {
+                        int fixed = rebuild();
+                        if (fixed > 0) {
+                            System.out.println("Fixed the loan counters of " + fixed + " members");
+                        }
+                        recordCompleted();
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Loan counter rebuild failed: " + e.getMessage());
+                } finally {
+                    RUNNING.set(false);
+                }
+            });
+        });
+    }
+
+    /**
+     * Recounts every member's loans, a block of ids at a time on several
+     * connections, and corrects the counters that are off.
+     *
+     * Each block locks its member rows first and then counts with a plain
+     * consistent read. Every counter change also locks the member row, so the
+     * count sees exactly the loans the counters already include.
+     *
+     * @return the number of members whose counters were corrected
+     */
+    public static int rebuild() throws SQLException {
+        int minId;
+        int maxId;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ID_RANGE);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            minId = rs.getInt(1);
+            maxId = rs.getInt(2);
+        }
+        if (maxId < minId) {
+            return 0;
+        }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        int chunks = (int) (((long) maxId - minId) / CHUNK_SIZE + 1);
+        AtomicInteger fixed = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < Math.max(1, Math.min(THREADS, chunks)); t++) {
+            workers.add(DatabaseExecutor.submit(() -> {
+                try (Connection conn = Database.getConnection()) {
+                    for (int chunk; (chunk = nextChunk.getAndIncrement()) < chunks; ) {
+                        int from = minId + chunk * CHUNK_SIZE;
+                        int to = (int) Math.min(maxId, (long) from + CHUNK_SIZE - 1);
+                        fixed.addAndGet(RetryPolicy.CIRCULATION.execute(() -> rebuildChunk(conn, from, to)));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Loan counter rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof SQLException
+                        ? (SQLException) cause
+                        : new SQLException("Loan counter rebuild failed", cause);
+            }
+        }
+        return fixed.get();
+    }
+
+    private static int rebuildChunk(Connection conn, int from, int to) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            Map<Integer, int[]> stored = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(LOCK_CHUNK)) {
+                stmt.setInt(1, from);
+                stmt.setInt(2, to);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        stored.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                    }
+                }
+            }
+            Map<Integer, int[]> counted = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(COUNT_CHUNK)) {
+                stmt.setInt(1, from);
+                stmt.setInt(2, to);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        counted.put(rs.getInt(1), new int[]{rs.getInt(2), rs.getInt(3)});
+                    }
+                }
+            }
+
+            List<Integer> fixedIds = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(FIX)) {
+                for (Map.Entry<Integer, int[]> entry : stored.entrySet()) {
+                    int[] actual = counted.getOrDefault(entry.getKey(), new int[2]);
+                    if (actual[0] != entry.getValue()[0] || actual[1] != entry.getValue()[1]) {
+                        stmt.setInt(1, actual[0]);
+                        stmt.setInt(2, actual[1]);
+                        stmt.setInt(3, entry.getKey());
+                        stmt.addBatch();
+                        fixedIds.add(entry.getKey());
+                    }
+                }
+                if (!fixedIds.isEmpty()) {
+                    stmt.executeBatch();
+                    ChangeLog.recordAll(conn, ChangeLog.USERS, fixedIds, ChangeLog.Op.UPDATE);
+                }
+            }
+            conn.commit();
+            return fixedIds.size();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean completedToday() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(LAST_COMPLETED)) {
+            stmt.setString(1, JOB_NAME);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void recordCompleted() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(RECORD_COMPLETED)) {
+            stmt.setString(1, JOB_NAME);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+// src/model/LoanFilter.java
+package model;
+
+import java.sql.Date;
+
+/**
+ * What the loan browser shows: a status, a loan_date range, and the start of
+ * the borrower's username and of the book title. Empty text and null dates
+ * mean "any". Archived loans are only included when asked for.
+ */
+public class LoanFilter {
+    public enum Status {
+        ACTIVE("Active"), OVERDUE("Overdue"), BORROWED("Borrowed"), RETURNED("Returned"), ANY("All");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final Status status;
+    private final Date from;
+    private final Date to;
+    private final String borrower;
+    private final String title;
+    private final boolean includeArchived;
+
+    public LoanFilter(Status status, Date from, Date to, String borrower, String title, boolean includeArchived) {
+        this.status = status != null ? status : Status.ANY;
+        this.from = from;
+        this.to = to;
+        this.borrower = borrower != null ? borrower.trim() : "";
+        this.title = title != null ? title.trim() : "";
+        this.includeArchived = includeArchived;
+    }
+
+    public static LoanFilter activeOnly() {
+        return new LoanFilter(Status.ACTIVE, null, null, null, null, false);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public String getBorrower() {
+        return borrower;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isIncludeArchived() {
+        return includeArchived;
+    }
+
+    // Archived loans are all returned, so only these statuses can find any
+    boolean canMatchArchive() {
+        return includeArchived && (status == Status.ANY || status == Status.RETURNED);
+    }
+
+    /**
+     * Whether a loan with details passes the filter, the same way the SQL does.
+     */
+    public boolean matches(BookLoan loan) {
+        String loanStatus = loan.getStatus();
+        switch (status) {
+            case ACTIVE:
+                if (!"borrowed".equals(loanStatus) && !"overdue".equals(loanStatus)) {
+                    return false;
+                }
+                break;
+            case ANY:
+                break;
+            default:
+                if (!status.name().equalsIgnoreCase(loanStatus)) {
+                    return false;
+                }
+        }
+        if (from != null && (loan.getLoanDate() == null || loan.getLoanDate().before(from))) {
+            return false;
+        }
+        if (to != null && (loan.getLoanDate() == null || loan.getLoanDate().after(to))) {
+            return false;
+        }
+        return startsWith(loan.getBorrowerUsername(), borrower) && startsWith(loan.getBookTitle(), title);
+    }
+
+    // Case-insensitive like the column collations
+    private static boolean startsWith(String value, String prefix) {
+        return prefix.isEmpty() || (value != null && value.regionMatches(true, 0, prefix, 0, prefix.length()));
+    }
+}
@@ -0,0 +1,229 @@
+// src/model/LoanRepository.java
+package model;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read queries against book_loans. Checkouts and returns live in Database
+ * because they update books and book_loans in one transaction. All of these
+ * may be served by a read replica (Database.getReadConnection).
+ */
+public class LoanRepository {
+    // 'overdue' is written by OverdueSweeper, so the status column can be shown as is
+    private static final String DETAILS = "SELECT bl.id, bl.book_id, bl.user_id, b.title, u.username, " +
+            "bl.loan_date, bl.due_date, bl.return_date, bl.status " +
+            "FROM book_loans bl " +
+            "JOIN books b ON bl.book_id = b.id " +
+            "JOIN users u ON bl.user_id = u.id ";
+    // Archived loans may outlive their book or member, hence the outer joins
+    private static final String ARCHIVE_DETAILS = "SELECT bl.id, bl.book_id, bl.user_id, " +
+            "COALESCE(b.title, '(deleted book)') AS title, COALESCE(u.username, '(deleted member)') AS username, " +
+            "bl.loan_date, bl.due_date, bl.return_date, bl.status " +
+            "FROM book_loans_archive bl " +
+            "LEFT JOIN books b ON bl.book_id = b.id " +
+            "LEFT JOIN users u ON bl.user_id = u.id ";
+    private static final String NEWEST_FIRST = "ORDER BY bl.loan_date DESC, bl.id DESC ";
+    // "loan_date <= ?" gives MySQL an index range on (loan_date, id), the OR breaks ties on id
+    private static final String BEFORE_KEY = "bl.loan_date <= ? AND (bl.loan_date < ? OR bl.id < ?)";
+
+    /**
+     * Number of loans that pass the filter, counting archived ones if it asks for them.
+     */
+    public int count(LoanFilter filter) throws SQLException {
+        int count = count("book_loans", filter);
+        if (filter.canMatchArchive()) {
+            count += count("book_loans_archive", filter);
+        }
+        return count;
+    }
+
+    private int count(String table, LoanFilter filter) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        // The filters only read book_loans (or subqueries), so no joins are needed to count
+        String sql = "SELECT COUNT(*) FROM " + table + " bl " + where(filter, null, params);
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Loans that pass the filter ordered by (loan_date, id), newest first, that
+     * come after the given key, or from the start when after is null. The key
+     * is a loan with only loanDate and id set.
+     */
+    public List<BookLoan> findPage(LoanFilter filter, BookLoan after, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        if (filter.canMatchArchive()) {
+            // Each side stops after one page, then the two pages are merged
+            sql.append('(').append(DETAILS).append(where(filter, after, params)).append(NEWEST_FIRST).append("LIMIT ?)");
+            params.add(limit);
+            sql.append(" UNION ALL (").append(ARCHIVE_DETAILS).append(where(filter, after, params))
+                    .append(NEWEST_FIRST).append("LIMIT ?)");
+            params.add(limit);
+            sql.append(" ORDER BY loan_date DESC, id DESC LIMIT ?");
+        } else {
+            sql.append(DETAILS).append(where(filter, after, params)).append(NEWEST_FIRST).append("LIMIT ?");
+        }
+        params.add(limit);
+
+        List<BookLoan> loans = new ArrayList<>(limit);
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loans.add(mapWithDetails(rs));
+                }
+            }
+        }
+        return loans;
+    }
+
+    /**
+     * The key (loanDate and id only) of the loan at the given position in
+     * findPage order, or null when there are fewer loans.
+     */
+    public BookLoan findKeyAt(LoanFilter filter, int offset) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        if (filter.canMatchArchive()) {
+            sql.append("(SELECT bl.loan_date, bl.id FROM book_loans bl ").append(where(filter, null, params))
+                    .append(NEWEST_FIRST).append("LIMIT ?)");
+            params.add(offset + 1);
+            sql.append(" UNION ALL (SELECT bl.loan_date, bl.id FROM book_loans_archive bl ")
+                    .append(where(filter, null, params)).append(NEWEST_FIRST).append("LIMIT ?)");
+            params.add(offset + 1);
+            sql.append(" ORDER BY loan_date DESC, id DESC LIMIT 1 OFFSET ?");
+        } else {
+            // Reads only (loan_date, id) when there is no filter, which idx_book_loans_loan_date covers
+            sql.append("SELECT bl.loan_date, bl.id FROM book_loans bl ").append(where(filter, null, params))
+                    .append(NEWEST_FIRST).append("LIMIT 1 OFFSET ?");
+        }
+        params.add(offset);
+
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                BookLoan key = new BookLoan();
+                key.setLoanDate(rs.getDate("loan_date"));
+                key.setId(rs.getInt("id"));
+                return key;
+            }
+        }
+    }
+
+    // WHERE clause over alias bl for the filter and an optional keyset start, adding its parameters
+    private static String where(LoanFilter filter, BookLoan after, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        switch (filter.getStatus()) {
+            case ACTIVE:
+                // Served by idx_book_loans_status_due, so the active view never reads the history
+                conditions.add("bl.status IN ('borrowed', 'overdue')");
+                break;
+            case ANY:
+                break;
+            default:
+                conditions.add("bl.status = ?");
+                params.add(filter.getStatus().name().toLowerCase());
+        }
+        if (filter.getFrom() != null) {
+            conditions.add("bl.loan_date >= ?");
+            params.add(filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            conditions.add("bl.loan_date <= ?");
+            params.add(filter.getTo());
+        }
+        // Prefix matches, so the lookups can use the username and (title, id) indexes
+        if (!filter.getBorrower().isEmpty()) {
+            conditions.add("bl.user_id IN (SELECT id FROM users WHERE username LIKE ?)");
+            params.add(likePrefix(filter.getBorrower()));
+        }
+        if (!filter.getTitle().isEmpty()) {
+            conditions.add("bl.book_id IN (SELECT id FROM books WHERE title LIKE ?)");
+            params.add(likePrefix(filter.getTitle()));
+        }
+        if (after != null) {
+            conditions.add(BEFORE_KEY);
+            params.add(after.getLoanDate());
+            params.add(after.getLoanDate());
+            params.add(after.getId());
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    private static String likePrefix(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static void bind(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            Object value = params.get(i);
+            if (value instanceof Date) {
+                stmt.setDate(i + 1, (Date) value);
+            } else if (value instanceof Integer) {
+                stmt.setInt(i + 1, (Integer) value);
+            } else {
+                stmt.setString(i + 1, (String) value);
+            }
+        }
+    }
+
+    /**
+     * The given loans with their book title and borrower, in no particular order.
+     * Loans that no longer exist are left out.
+     */
+    public List<BookLoan> findWithDetailsByIds(List<Integer> ids) throws SQLException {
+        List<BookLoan> loans = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return loans;
+        }
+        StringBuilder sql = new StringBuilder(DETAILS).append("WHERE bl.id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loans.add(mapWithDetails(rs));
+                }
+            }
+        }
+        return loans;
+    }
+
+    static BookLoan mapWithDetails(ResultSet rs) throws SQLException {
+        BookLoan loan = new BookLoan();
+        loan.setId(rs.getInt("id"));
+        loan.setBookId(rs.getInt("book_id"));
+        loan.setUserId(rs.getInt("user_id"));
+        loan.setLoanDate(rs.getDate("loan_date"));
+        loan.setDueDate(rs.getDate("due_date"));
+        loan.setReturnDate(rs.getDate("return_date"));
+        loan.setStatus(rs.getString("status"));
+        loan.setBookTitle(rs.getString("title"));
+        loan.setBorrowerUsername(rs.getString("username"));
+        return loan;
+    }
+}
@@ -0,0 +1,283 @@
+// src/model/MemberIndex.java
+package model;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Prefix index over members for the type-ahead picker in the loan dialog.
+ *
+ * Every member is filed under each word of their full name, their username and
+ * their id, all normalized like BookSearchIndex tokens. The keys live in one
+ * sorted String[] with a parallel int[] of member ids, so a lookup is a binary
+ * search for the first key at or after the prefix followed by a short forward
+ * scan. Readers use an immutable snapshot without locking; put() and remove()
+ * build the next snapshot by merging, which is linear in the number of keys.
+ */
+public class MemberIndex {
+    private static final MemberIndex SHARED = new MemberIndex();
+
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public static MemberIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * What the picker shows for one member.
+     */
+    public static final class Member {
+        private final int id;
+        private final String username;
+        private final String fullName;
+        final String[] searchTokens;
+
+        Member(int id, String username, String fullName) {
+            this.id = id;
+            this.username = username;
+            this.fullName = fullName;
+            this.searchTokens = BookSearchIndex.tokenize(fullName + " " + username);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getFullName() {
+            return fullName;
+        }
+
+        @Override
+        public String toString() {
+            return fullName + " (" + username + ") #" + id;
+        }
+    }
+
+    private static final class Snapshot {
+        final String[] keys;
+        final int[] ids;
+        final Map<Integer, Member> members;
+
+        Snapshot(String[] keys, int[] ids, Map<Integer, Member> members) {
+            this.keys = keys;
+            this.ids = ids;
+            this.members = members;
+        }
+    }
+
+    public boolean isBuilt() {
+        return snapshot != null;
+    }
+
+    /**
+     * Loads every member unless that already happened.
+     */
+    public void ensureBuilt() throws SQLException {
+        if (snapshot != null) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (snapshot != null) {
+                return;
+            }
+            Map<Integer, Member> members = new HashMap<>();
+            List<Key> keys = new ArrayList<>();
+            for (User user : new UserRepository().findMembers()) {
+                Member member = new Member(user.getId(), user.getUsername(), user.getFullName());
+                members.put(member.id, member);
+                addKeys(member, keys);
+            }
+            keys.sort(null);
+            snapshot = toSnapshot(keys, members);
+        }
+    }
+
+    /**
+     * Adds or refreshes a user; users who are not members are removed instead.
+     * A member whose username and full name are unchanged is left as is, so
+     * loan counter updates do not rebuild the snapshot.
+     */
+    public void put(User user) {
+        if (!"member".equals(user.getRole())) {
+            remove(user.getId());
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return; // Picked up by the initial build
+            }
+            Member existing = current.members.get(user.getId());
+            if (existing != null && Objects.equals(existing.username, user.getUsername())
+                    && Objects.equals(existing.fullName, user.getFullName())) {
+                return;
+            }
+            Member member = new Member(user.getId(), user.getUsername(), user.getFullName());
+            List<Key> added = new ArrayList<>();
+            addKeys(member, added);
+            added.sort(null);
+            Map<Integer, Member> members = new HashMap<>(current.members);
+            members.put(member.id, member);
+            snapshot = merge(current, member.id, added, members);
+        }
+    }
+
+    public void remove(int userId) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null || !current.members.containsKey(userId)) {
+                return;
+            }
+            Map<Integer, Member> members = new HashMap<>(current.members);
+            members.remove(userId);
+            snapshot = merge(current, userId, new ArrayList<>(), members);
+        }
+    }
+
+    /**
+     * Members matching every word of the query as a prefix of their name, username or id,
+     * in key order, at most limit of them. Builds the index on first use.
+     */
+    public List<Member> search(String query, int limit) throws SQLException {
+        ensureBuilt();
+        Snapshot current = snapshot;
+        String[] terms = BookSearchIndex.tokenize(query);
+        List<Member> result = new ArrayList<>();
+        if (terms.length == 0) {
+            return result;
+        }
+
+        // The longest term is usually the most selective one to scan
+        String lead = terms[0];
+        for (String term : terms) {
+            if (term.length() > lead.length()) {
+                lead = term;
+            }
+        }
+
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int i = lowerBound(current.keys, lead); i < current.keys.length && result.size() < limit; i++) {
+            if (!current.keys[i].startsWith(lead)) {
+                break;
+            }
+            int id = current.ids[i];
+            if (seen.add(id)) {
+                Member member = current.members.get(id);
+                if (matchesAll(member, terms)) {
+                    result.add(member);
+                }
+            }
+        }
+        return result;
+    }
+
+    public Member get(int userId) {
+        Snapshot current = snapshot;
+        return current == null ? null : current.members.get(userId);
+    }
+
+    private static boolean matchesAll(Member member, String[] terms) {
+        for (String term : terms) {
+            boolean found = Integer.toString(member.id).startsWith(term);
+            for (int t = 0; !found && t < member.searchTokens.length; t++) {
+                found = member.searchTokens[t].startsWith(term);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void addKeys(Member member, List<Key> keys) {
+        Set<String> distinct = new LinkedHashSet<>(Arrays.asList(member.searchTokens));
+        distinct.add(Integer.toString(member.id));
+        for (String token : distinct) {
+            keys.add(new Key(token, member.id));
+        }
+    }
+
+    // Drops the keys of userId from the current arrays and merges in the (sorted) added keys
+    private static Snapshot merge(Snapshot current, int userId, List<Key> added, Map<Integer, Member> members) {
+        int capacity = current.keys.length + added.size();
+        String[] keys = new String[capacity];
+        int[] ids = new int[capacity];
+        int n = 0;
+        int a = 0;
+        for (int i = 0; i < current.keys.length; i++) {
+            if (current.ids[i] == userId) {
+                continue;
+            }
+            while (a < added.size() && added.get(a).compareTo(current.keys[i], current.ids[i]) < 0) {
+                keys[n] = added.get(a).text;
+                ids[n++] = added.get(a++).userId;
+            }
+            keys[n] = current.keys[i];
+            ids[n++] = current.ids[i];
+        }
+        while (a < added.size()) {
+            keys[n] = added.get(a).text;
+            ids[n++] = added.get(a++).userId;
+        }
+        if (n < capacity) {
+            keys = Arrays.copyOf(keys, n);
+            ids = Arrays.copyOf(ids, n);
+        }
+        return new Snapshot(keys, ids, members);
+    }
+
+    private static Snapshot toSnapshot(List<Key> keys, Map<Integer, Member> members) {
+        String[] keyArray = new String[keys.size()];
+        int[] idArray = new int[keys.size()];
+        for (int i = 0; i < keyArray.length; i++) {
+            keyArray[i] = keys.get(i).text;
+            idArray[i] = keys.get(i).userId;
+        }
+        return new Snapshot(keyArray, idArray, members);
+    }
+
+    private static final class Key implements Comparable<Key> {
+        final String text;
+        final int userId;
+
+        Key(String text, int userId) {
+            this.text = text;
+            this.userId = userId;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return compareTo(other.text, other.userId);
+        }
+
+        int compareTo(String otherText, int otherUserId) {
+            int c = text.compareTo(otherText);
+            return c != 0 ? c : Integer.compare(userId, otherUserId);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+// src/model/OverdueSweeper.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Marks borrowed loans whose due date has passed as 'overdue'.
+ *
+ * Each batch is a short, separately committed transaction driven by the
+ * (status, due_date) index, so the sweep never holds many row locks at once.
+ * A batch aborted by a deadlock or lock wait timeout is retried through
+ * RetryPolicy.CIRCULATION, like the other circulation writes.
+ * The batch locks the loans it picks, marks them, raises their members'
+ * overdue_loans counters and records them in change_log, so other desks see the new status on their next poll.
+ * An interrupted sweep simply picks up the remaining rows on its next run. The
+ * date of the last completed sweep is kept in maintenance_state, so restarting
+ * a desk during the day does not repeat the work. The batches run on the
+ * DatabaseExecutor, so a long sweep does not hold up the other scheduled jobs.
+ */
+public class OverdueSweeper {
+    static final String JOB_NAME = "overdue_sweep";
+    private static final int BATCH_SIZE = Integer.getInteger("library.overdue.batchSize", 500);
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private static final String LAST_COMPLETED =
+            "SELECT last_completed >= CURRENT_DATE() FROM maintenance_state WHERE job_name = ?";
+    private static final String PICK_BATCH = "SELECT id, user_id FROM book_loans " +
+            "WHERE status = 'borrowed' AND due_date < CURRENT_DATE() ORDER BY due_date LIMIT ? FOR UPDATE";
+    private static final String MARK = "UPDATE book_loans SET status = 'overdue' WHERE id = ?";
+    private static final String RECORD_COMPLETED = "INSERT INTO maintenance_state (job_name, last_completed) " +
+            "VALUES (?, CURRENT_DATE()) ON DUPLICATE KEY UPDATE last_completed = VALUES(last_completed)";
+
+    /**
+     * Sweeps at startup (unless already done today) and daily after midnight.
+     */
+    public static void start() {
+        BackgroundJobs.scheduleDaily(JOB_NAME, () -> {
+            // Keep the shared scheduler free for the change feed and the other jobs
+            if (!RUNNING.compareAndSet(false, true)) {
+                return;
+            }
+            DatabaseExecutor.submit(() -> {
+                try {
+                    int marked = new OverdueSweeper().sweep();
+                    if (marked > 0) {
+                        System.out.println("Marked " + marked + " loans as overdue");
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Overdue sweep failed: " + e.getMessage());
+                } finally {
+                    RUNNING.set(false);
+                }
+            });
+        });
+    }
+
+    /**
+     * @return the number of loans marked overdue
+     */
+    public int sweep() throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            if (completedToday(conn)) {
+                return 0;
+            }
+
+            int total = 0;
+            int marked;
+            do {
+                // Each batch is its own transaction, so a deadlock only repeats that batch
+                marked = RetryPolicy.CIRCULATION.execute(() -> markBatch(conn));
+                total += marked;
+            } while (marked == BATCH_SIZE);
+
+            try (PreparedStatement stmt = conn.prepareStatement(RECORD_COMPLETED)) {
+                stmt.setString(1, JOB_NAME);
+                stmt.executeUpdate();
+            }
+            return total;
+        }
+    }
+
+    private int markBatch(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<Integer> ids = new ArrayList<>();
+            Map<Integer, Integer> perUser = new TreeMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(PICK_BATCH)) {
+                stmt.setInt(1, BATCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        perUser.merge(rs.getInt(2), 1, Integer::sum);
+                    }
+                }
+            }
+            if (!ids.isEmpty()) {
+                try (PreparedStatement stmt = conn.prepareStatement(MARK)) {
+                    for (int id : ids) {
+                        stmt.setInt(1, id);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                LoanCounters.markedOverdue(conn, perUser);
+                ChangeLog.recordAll(conn, ChangeLog.LOANS, ids, ChangeLog.Op.UPDATE);
+            }
+            conn.commit();
+            return ids.size();
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private boolean completedToday(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LAST_COMPLETED)) {
+            stmt.setString(1, JOB_NAME);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
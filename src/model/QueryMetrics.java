@@ -0,0 +1,413 @@
+// src/model/QueryMetrics.java
+package model;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Counts and timings for every SQL statement and connection borrow.
+ *
+ * ConnectionPool wraps each statement it hands out, so every repository and
+ * Database call is measured without touching the calling code. Statements are
+ * grouped by their SQL with whitespace and IN (?, ?, ...) / multi-row VALUES
+ * lists collapsed, so a lookup of 3 ids and one of 30 count as the same name.
+ * Timings cover execution up to the first result, not reading the rows.
+ *
+ * Latencies go into log-linear histograms (16 linear sub-buckets per power of
+ * two microseconds, so any percentile is within about 6%) kept in an
+ * AtomicLongArray; recording is a few atomic adds and allocates nothing.
+ * Each name is published as a JMX MBean under "library:type=Query" and, if
+ * -Dlibrary.metrics.logFile is set, appended to that file every
+ * library.metrics.logSeconds (60 by default).
+ */
+public class QueryMetrics {
+    private static final String LOG_FILE = System.getProperty("library.metrics.logFile");
+    private static final long LOG_SECONDS = Long.getLong("library.metrics.logSeconds", 60);
+    // Statements beyond this many distinct names are counted under "other"
+    private static final int MAX_NAMES = 500;
+    private static final int MAX_NAME_LENGTH = 200;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern VALUES_LIST = Pattern.compile("(?i)\\bVALUES\\s*(\\([^()]*\\))(\\s*,\\s*\\([^()]*\\))+");
+
+    private static final Map<String, Stats> BY_NAME = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> BY_SQL = new ConcurrentHashMap<>(); // raw SQL -> its named stats
+
+    /** Time spent waiting for Database.getConnection(). */
+    public static final Stats CONNECTION_ACQUIRE = named("connection.acquire", "Connection");
+    /** Time spent opening new physical connections. */
+    public static final Stats CONNECTION_OPEN = named("connection.open", "Connection");
+    /** Time spent borrowing replica connections for Database.getReadConnection(). */
+    public static final Stats REPLICA_ACQUIRE = named("connection.replica", "Connection");
+
+    /**
+     * What JMX shows for one statement name.
+     */
+    public interface StatsMBean {
+        String getName();
+
+        long getCount();
+
+        long getErrors();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP95Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+
+        void reset();
+    }
+
+    /**
+     * Counters and a latency histogram for one name. Safe for concurrent use.
+     */
+    public static final class Stats implements StatsMBean {
+        // Values below 2^SUB_BITS microseconds get a bucket each; above that each power of two is split in 2^SUB_BITS
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40; // About 12 days in microseconds; longer is clamped
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records one call that started at startNanos (System.nanoTime()).
+         */
+        public void recordSince(long startNanos, boolean failed) {
+            record(System.nanoTime() - startNanos, failed);
+        }
+
+        public void record(long nanos, boolean failed) {
+            nanos = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketOf(nanos / 1000));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Lost a race with a concurrent slower call; try again
+            }
+        }
+
+        static int bucketOf(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            micros = Math.min(micros, (1L << (MAX_EXPONENT + 1)) - 1);
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        // Largest value that lands in the bucket
+        static long highestMicrosOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+            return (1L << exponent) + sub * width + width - 1;
+        }
+
+        /**
+         * The latency below which the given fraction (0..1) of calls completed.
+         */
+        public double percentileMillis(double fraction) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(highestMicrosOf(i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.get();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentileMillis(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return percentileMillis(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentileMillis(0.99);
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // Not atomic with respect to concurrent record() calls, which is fine for a monitoring reset
+        @Override
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            errors.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d errors=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms %s",
+                    getCount(), getErrors(), getMeanMillis(), getP50Millis(), getP95Millis(), getP99Millis(),
+                    getMaxMillis(), name);
+        }
+    }
+
+    /**
+     * Appends all statistics to library.metrics.logFile periodically, if that property is set.
+     */
+    public static void start() {
+        if (LOG_FILE == null || LOG_FILE.isEmpty()) {
+            return;
+        }
+        Path file = Paths.get(LOG_FILE);
+        BackgroundJobs.scheduleAtFixedRate("metrics_log", () -> {
+            try {
+                dump(file);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, LOG_SECONDS, LOG_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static Collection<Stats> all() {
+        return BY_NAME.values();
+    }
+
+    /**
+     * Statistics for a statement, by its SQL text.
+     */
+    public static Stats forSql(String sql) {
+        Stats stats = BY_SQL.get(sql);
+        if (stats == null) {
+            stats = forName(normalize(sql));
+            if (BY_SQL.size() < MAX_NAMES * 4) {
+                BY_SQL.put(sql, stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Statistics for an arbitrary operation, e.g. a whole repository call.
+     */
+    public static Stats forName(String name) {
+        Stats stats = BY_NAME.get(name);
+        if (stats != null) {
+            return stats;
+        }
+        if (BY_NAME.size() >= MAX_NAMES) {
+            name = "other";
+        }
+        return named(name, "Query");
+    }
+
+    static String normalize(String sql) {
+        String name = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        name = IN_LIST.matcher(name).replaceAll("IN (?...)");
+        name = VALUES_LIST.matcher(name).replaceAll("VALUES $1, ...");
+        return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) + "..." : name;
+    }
+
+    private static Stats named(String name, String type) {
+        Stats created = new Stats(name);
+        Stats existing = BY_NAME.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(created, StatsMBean.class),
+                    new ObjectName("library:type=" + type + ",name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            System.err.println("Could not publish metrics for " + name + ": " + e.getMessage());
+        }
+        return created;
+    }
+
+    private static void dump(Path file) throws IOException {
+        String time = LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        List<String> lines = new ArrayList<>();
+        for (Stats stats : BY_NAME.values()) {
+            if (stats.getCount() > 0) {
+                lines.add(time + " " + stats);
+            }
+        }
+        if (!lines.isEmpty()) {
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Wraps a statement so that its execute calls are timed. sql is null for a
+     * plain Statement, whose SQL only arrives with execute. Slow executions are
+     * passed on to SlowQueryLog. getConnection() returns owner.
+     */
+    static Statement wrap(Statement stmt, String sql, Connection owner) {
+        Class<?> type = stmt instanceof CallableStatement ? CallableStatement.class
+                : stmt instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[]{type}, new Timed(stmt, sql, owner));
+    }
+
+    private static final class Timed implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Connection owner; // The pooled handle, never the physical connection
+        private final Stats stats;
+        // Bound parameters by position, kept only for the slow query log
+        private Object[] params;
+        private int paramCount;
+
+        Timed(Statement target, String sql, Connection owner) {
+            this.target = target;
+            this.sql = sql;
+            this.owner = owner;
+            this.stats = sql != null ? forSql(sql) : null;
+            this.params = sql != null && SlowQueryLog.isEnabled() ? new Object[8] : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return owner;
+            }
+            if (!name.startsWith("execute")) {
+                if (params != null) {
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    } else if (name.equals("clearParameters")) {
+                        Arrays.fill(params, null);
+                        paramCount = 0;
+                    }
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            String executed = sql;
+            if (executed == null && args != null && args.length > 0 && args[0] instanceof String) {
+                executed = (String) args[0];
+            }
+            Stats timed = stats;
+            if (timed == null) {
+                timed = executed != null ? forSql(executed) : forName("statement batch");
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                timed.recordSince(start, true);
+                throw e.getCause();
+            }
+            long elapsed = System.nanoTime() - start;
+            timed.record(elapsed, false);
+            return executed != null ? SlowQueryLog.executed(executed, params, paramCount, elapsed, result) : result;
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+    }
+}
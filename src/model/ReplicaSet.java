@@ -0,0 +1,230 @@
+// src/model/ReplicaSet.java
+package model;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read replicas that Database.getReadConnection() spreads reads over.
+ *
+ * A replica is only used while its last lag check found it replicating and at
+ * most library.db.replica.maxLagSeconds (5) behind. Checks run every
+ * library.db.replica.checkSeconds (5); a replica that cannot be reached, has
+ * replication stopped or is too far behind gets no reads until a later check
+ * passes. For library.db.readYourWritesMillis (5000) after a Session wrote
+ * anything (see ChangeLog), that session's reads go to the primary, so a desk
+ * always sees its own changes. Other sessions, such as other requests on the
+ * server, keep reading from the replicas, and background jobs write outside
+ * any session.
+ *
+ * Replicas come from library.db.replicas, a comma-separated list of JDBC URLs,
+ * and log in as library.db.replica.user/password (the primary's by default).
+ * Give that account the REPLICATION CLIENT privilege for the lag check, and
+ * make the replicas read-only on the server side (super_read_only).
+ */
+public class ReplicaSet {
+    private static final long MAX_LAG_SECONDS = Long.getLong("library.db.replica.maxLagSeconds", 5);
+    private static final long CHECK_SECONDS = Long.getLong("library.db.replica.checkSeconds", 5);
+    private static final long READ_YOUR_WRITES_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("library.db.readYourWritesMillis", 5000));
+
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaSet(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    static final class Replica {
+        final String url;
+        final ConnectionPool pool;
+        volatile boolean usable; // Nothing is read from a replica before its first check passes
+        volatile String problem = "not checked yet";
+
+        Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    /**
+     * Whose writes its own reads must see: a desk (the desktop application binds
+     * one to its Event Dispatch Thread) or a single server request. Tasks handed
+     * to DatabaseExecutor.submit run in the session of the thread that submitted
+     * them; the background jobs run in none.
+     */
+    public static final class Session {
+        private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+        private volatile long lastWriteNanos = System.nanoTime() - READ_YOUR_WRITES_NANOS;
+
+        public static Session current() {
+            return CURRENT.get();
+        }
+
+        /**
+         * Makes session the current thread's session, or leaves the thread in none when null.
+         */
+        public static void bind(Session session) {
+            if (session == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(session);
+            }
+        }
+
+        // Runs the task in the session of the thread that calls this
+        static <T> Callable<T> propagate(Callable<T> task) {
+            Session session = CURRENT.get();
+            if (session == null) {
+                return task;
+            }
+            return () -> {
+                Session previous = CURRENT.get();
+                bind(session);
+                try {
+                    return task.call();
+                } finally {
+                    bind(previous);
+                }
+            };
+        }
+
+        static Runnable propagate(Runnable task) {
+            Session session = CURRENT.get();
+            if (session == null) {
+                return task;
+            }
+            return () -> {
+                Session previous = CURRENT.get();
+                bind(session);
+                try {
+                    task.run();
+                } finally {
+                    bind(previous);
+                }
+            };
+        }
+
+        void wrote() {
+            lastWriteNanos = System.nanoTime();
+        }
+
+        boolean wroteRecently() {
+            return System.nanoTime() - lastWriteNanos < READ_YOUR_WRITES_NANOS;
+        }
+    }
+
+    boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    /**
+     * A connection to a usable replica, or null when the read should go to the primary.
+     */
+    Connection getConnection() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.usable) {
+                continue;
+            }
+            long begin = System.nanoTime();
+            try {
+                Connection conn = replica.pool.getConnection();
+                QueryMetrics.REPLICA_ACQUIRE.recordSince(begin, false);
+                return conn;
+            } catch (SQLException e) {
+                QueryMetrics.REPLICA_ACQUIRE.recordSince(begin, true);
+                markUnusable(replica, "connection failed: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks every replica's lag now and then every few seconds.
+     */
+    void start() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        // Each check runs on its own thread, so an unreachable replica cannot hold up the other jobs
+        BackgroundJobs.scheduleAtFixedRate("replica_lag_check", () -> {
+            for (Replica replica : replicas) {
+                DatabaseExecutor.submit(() -> check(replica));
+            }
+        }, 0, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void check(Replica replica) {
+        try (Connection conn = replica.pool.getConnection()) {
+            Long lag = lagSeconds(conn);
+            if (lag == null) {
+                markUnusable(replica, "replication is not running");
+            } else if (lag > MAX_LAG_SECONDS) {
+                markUnusable(replica, "more than " + MAX_LAG_SECONDS + "s behind the primary");
+            } else if (!replica.usable) {
+                replica.usable = true;
+                replica.problem = null;
+                System.out.println("Reading from replica " + replica.url);
+            }
+        } catch (SQLException e) {
+            markUnusable(replica, "lag check failed: " + e.getMessage());
+        }
+    }
+
+    // Seconds behind the source, or null if the server is not replicating
+    private static Long lagSeconds(Connection conn) throws SQLException {
+        String sql = "SHOW REPLICA STATUS";
+        String column = "Seconds_Behind_Source";
+        if (conn.getMetaData().getDatabaseMajorVersion() < 8 || isBefore8022(conn)) {
+            sql = "SHOW SLAVE STATUS";
+            column = "Seconds_Behind_Master";
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                return null;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    private static boolean isBefore8022(Connection conn) throws SQLException {
+        String version = conn.getMetaData().getDatabaseProductVersion();
+        String[] parts = version.split("[.-]");
+        try {
+            return parts.length >= 3 && Integer.parseInt(parts[0]) == 8
+                    && Integer.parseInt(parts[1]) == 0 && Integer.parseInt(parts[2]) < 22;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static void markUnusable(Replica replica, String problem) {
+        boolean wasUsable = replica.usable;
+        replica.usable = false;
+        // Only report changes, not every failed check
+        if (wasUsable || !problem.equals(replica.problem)) {
+            System.err.println("Not reading from replica " + replica.url + ": " + problem);
+        }
+        replica.problem = problem;
+    }
+
+    void close() {
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+// src/model/RetryPolicy.java
+package model;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-runs a transaction that MySQL aborted because of lock contention.
+ *
+ * Deadlocks (error 1213) and lock wait timeouts (error 1205) are classified as
+ * retryable, as is anything with a transaction-rollback SQLState (class 40).
+ * Between attempts the caller sleeps for a random time up to an exponentially
+ * growing cap ("full jitter"), so desks that collided once do not collide again
+ * in lockstep. The action must start and finish its own transaction. Aborts
+ * are counted per policy, so load tests can report how often they happened.
+ */
+public class RetryPolicy {
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    public static final RetryPolicy CIRCULATION = new RetryPolicy(
+            Integer.getInteger("library.retry.maxAttempts", 5), 10, 1000);
+
+    public interface SqlAction<T> {
+        T run() throws SQLException;
+    }
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final AtomicLong deadlocks = new AtomicLong();
+    private final AtomicLong lockWaitTimeouts = new AtomicLong();
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public <T> T execute(SqlAction<T> action) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.run();
+            } catch (SQLException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                count(e);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                sleep(backoffMillis(attempt), e);
+            }
+        }
+    }
+
+    public static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                SQLException sql = (SQLException) t;
+                int code = sql.getErrorCode();
+                String state = sql.getSQLState();
+                if (code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT
+                        || (state != null && state.startsWith("40"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Transactions aborted by a deadlock (or any other rollback), including ones retried successfully.
+     */
+    public long getDeadlockCount() {
+        return deadlocks.get();
+    }
+
+    public long getLockWaitTimeoutCount() {
+        return lockWaitTimeouts.get();
+    }
+
+    private void count(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && ((SQLException) t).getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                lockWaitTimeouts.incrementAndGet();
+                return;
+            }
+        }
+        deadlocks.incrementAndGet();
+    }
+
+    private long backoffMillis(int attempt) {
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static void sleep(long millis, SQLException cause) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
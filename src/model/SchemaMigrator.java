@@ -0,0 +1,250 @@
+// src/model/SchemaMigrator.java
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date with an ordered list of versioned migrations.
+ *
+ * Applied versions and their checksums are recorded in schema_version. On a
+ * database that is already current, startup costs a single query. Migrations
+ * are append-only: once a version has shipped its statements must not change,
+ * which the checksum check enforces. Add new steps at the end of MIGRATIONS.
+ */
+public class SchemaMigrator {
+    private static final int ER_NO_SUCH_TABLE = 1146;
+    private static final String LOCK_NAME = "library_db.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final List<String> statements;
+        final long checksum;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = Arrays.asList(statements);
+            CRC32 crc = new CRC32();
+            for (String sql : statements) {
+                crc.update(sql.getBytes(StandardCharsets.UTF_8));
+                crc.update(';');
+            }
+            this.checksum = crc.getValue();
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "Initial schema",
+                    "CREATE TABLE IF NOT EXISTS users (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "username VARCHAR(50) NOT NULL UNIQUE, " +
+                            "password VARCHAR(100) NOT NULL, " +
+                            "role ENUM('admin', 'librarian', 'member') NOT NULL, " +
+                            "full_name VARCHAR(100) NOT NULL, " +
+                            "email VARCHAR(100) NOT NULL, " +
+                            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                            ") ENGINE=InnoDB",
+                    "CREATE TABLE IF NOT EXISTS books (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "title VARCHAR(255) NOT NULL, " +
+                            "author VARCHAR(100) NOT NULL, " +
+                            "isbn VARCHAR(20) NOT NULL UNIQUE, " +
+                            "genre VARCHAR(50) NOT NULL, " +
+                            "publication_year INT, " +
+                            "quantity INT NOT NULL DEFAULT 1, " +
+                            "available_quantity INT NOT NULL DEFAULT 1, " +
+                            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                            ") ENGINE=InnoDB",
+                    "CREATE TABLE IF NOT EXISTS book_loans (" +
+                            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                            "book_id INT NOT NULL, " +
+                            "user_id INT NOT NULL, " +
+                            "loan_date DATE NOT NULL, " +
+                            "due_date DATE NOT NULL, " +
+                            "return_date DATE, " +
+                            "status ENUM('borrowed', 'returned', 'overdue') NOT NULL, " +
+                            "FOREIGN KEY (book_id) REFERENCES books(id), " +
+                            "FOREIGN KEY (user_id) REFERENCES users(id)" +
+                            ") ENGINE=InnoDB",
+                    // Default admin user and sample books, only on an empty database
+                    "INSERT INTO users (username, password, role, full_name, email) " +
+                            "SELECT 'admin', 'admin123', 'admin', 'System Administrator', 'admin@library.com' " +
+                            "FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM users)",
+                    "INSERT INTO books (title, author, isbn, genre, publication_year, quantity, available_quantity) " +
+                            "SELECT * FROM (" +
+                            "SELECT 'To Kill a Mockingbird', 'Harper Lee', '9780061120084', 'Fiction', 1960, 5, 5 " +
+                            "UNION ALL SELECT '1984', 'George Orwell', '9780451524935', 'Dystopian', 1949, 3, 3" +
+                            ") AS samples WHERE NOT EXISTS (SELECT 1 FROM books)"),
+            new Migration(2, "Indexes for loan, member and catalog hot paths",
+                    // Overdue checks: status = 'borrowed' AND due_date < today
+                    "CREATE INDEX idx_book_loans_status_due ON book_loans (status, due_date)",
+                    // Active loans per member (delete checks)
+                    "CREATE INDEX idx_book_loans_user_status ON book_loans (user_id, status)",
+                    // Loan list ordered by loan_date
+                    "CREATE INDEX idx_book_loans_loan_date ON book_loans (loan_date, id)",
+                    // Member lists
+                    "CREATE INDEX idx_users_role ON users (role)",
+                    // Keyset paging of the catalog by (title, id)
+                    "CREATE INDEX idx_books_title ON books (title, id)"),
+            new Migration(3, "Progress of scheduled maintenance jobs",
+                    "CREATE TABLE maintenance_state (" +
+                            "job_name VARCHAR(50) PRIMARY KEY, " +
+                            "last_completed DATE, " +
+                            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                            ") ENGINE=InnoDB"),
+            // Room for "pbkdf2$iterations$salt$hash" and future schemes; see AuthService
+            new Migration(4, "Widen users.password for password hashes",
+                    "ALTER TABLE users MODIFY password VARCHAR(255) NOT NULL"),
+            // Written in the same transaction as each change and polled by ChangeFeed
+            new Migration(5, "Change log for incremental refresh",
+                    "CREATE TABLE change_log (" +
+                            "version BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                            "table_name VARCHAR(20) NOT NULL, " +
+                            "row_id INT NOT NULL, " +
+                            "op ENUM('INSERT', 'UPDATE', 'DELETE', 'RELOAD') NOT NULL, " +
+                            "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_change_log_changed_at (changed_at)" +
+                            ") ENGINE=InnoDB"),
+            // Filled by LoanArchiver. Keeps the original loan ids; no foreign keys, so
+            // books and members with only archived loans can still be deleted
+            new Migration(6, "Archive of old returned loans",
+                    "CREATE TABLE book_loans_archive (" +
+                            "id INT PRIMARY KEY, " +
+                            "book_id INT NOT NULL, " +
+                            "user_id INT NOT NULL, " +
+                            "loan_date DATE NOT NULL, " +
+                            "due_date DATE NOT NULL, " +
+                            "return_date DATE, " +
+                            "status ENUM('borrowed', 'returned', 'overdue') NOT NULL, " +
+                            "archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                            "INDEX idx_book_loans_archive_loan_date (loan_date, id), " +
+                            "INDEX idx_book_loans_archive_user (user_id, loan_date), " +
+                            "INDEX idx_book_loans_archive_book (book_id)" +
+                            ") ENGINE=InnoDB"),
+            // Kept current by checkouts, returns and the overdue sweep; see LoanCounters
+            new Migration(7, "Per-member loan counters",
+                    "ALTER TABLE users ADD COLUMN active_loans INT NOT NULL DEFAULT 0, " +
+                            "ADD COLUMN overdue_loans INT NOT NULL DEFAULT 0",
+                    "UPDATE users u JOIN (SELECT user_id, COUNT(*) AS active, SUM(status = 'overdue') AS overdue " +
+                            "FROM book_loans WHERE status IN ('borrowed', 'overdue') GROUP BY user_id) c " +
+                            "ON c.user_id = u.id SET u.active_loans = c.active, u.overdue_loans = c.overdue")
+    );
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Applies every migration newer than the recorded schema version.
+     */
+    public static void migrate(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = readAppliedVersions(conn);
+        if (applied != null && isCurrent(applied)) {
+            return; // Fast path: nothing to do
+        }
+
+        // Another workstation may be migrating at the same time
+        acquireLock(conn);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(200) NOT NULL, " +
+                        "checksum BIGINT NOT NULL, " +
+                        "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                        ") ENGINE=InnoDB");
+            }
+            applied = readAppliedVersions(conn);
+
+            for (Migration migration : MIGRATIONS) {
+                if (!applied.containsKey(migration.version)) {
+                    apply(conn, migration);
+                }
+            }
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    // Returns null when schema_version does not exist yet
+    private static Map<Integer, Long> readAppliedVersions(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+            return applied;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_NO_SUCH_TABLE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isCurrent(Map<Integer, Long> applied) throws SQLException {
+        boolean current = true;
+        for (Migration migration : MIGRATIONS) {
+            Long checksum = applied.get(migration.version);
+            if (checksum == null) {
+                current = false;
+            } else if (checksum != migration.checksum) {
+                throw new SQLException("Schema migration " + migration.version + " (" + migration.description +
+                        ") was changed after it was applied: checksum " + checksum +
+                        " in database, " + migration.checksum + " in code");
+            }
+        }
+        return current;
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+        // MySQL commits DDL implicitly, so a failed migration is not rolled back; fix and rerun
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements) {
+                stmt.execute(sql);
+            }
+        }
+        String insert = "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setLong(3, migration.checksum);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the schema migration lock");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Could not release schema migration lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+// src/model/SlowQueryLog.java
+package model;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Logs statements that take longer than library.slowQuery.millis (500 by
+ * default, 0 turns the log off) together with their bound parameters, elapsed
+ * time, rows returned or changed, and the plan MySQL chose for them.
+ *
+ * QueryMetrics reports every finished statement here. For a slow query the
+ * result set is followed until it is read to the end or closed, so the row
+ * count is known; fast ones are never wrapped. The plan comes from
+ * EXPLAIN FORMAT=JSON with the same parameters, run on a virtual thread with
+ * its own pooled connection so the caller is not held up. Each normalized
+ * statement is logged at most once per library.slowQuery.intervalSeconds (60);
+ * the next entry says how many were skipped in between.
+ *
+ * Entries go to library.slowQuery.logFile if set, otherwise to standard error.
+ * Password hashes and long values are not written out in full.
+ */
+public class SlowQueryLog {
+    private static final long THRESHOLD_MILLIS = Long.getLong("library.slowQuery.millis", 500);
+    private static final long THRESHOLD_NANOS = THRESHOLD_MILLIS * 1_000_000L;
+    private static final long INTERVAL_MILLIS = Long.getLong("library.slowQuery.intervalSeconds", 60) * 1000;
+    private static final String LOG_FILE = System.getProperty("library.slowQuery.logFile");
+    private static final int MAX_PARAM_LENGTH = 100;
+    private static final int MAX_FINGERPRINTS = 1000;
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("(?is)^\\s*(SELECT|INSERT|UPDATE|DELETE|REPLACE)\\b.*");
+    private static final String EXPLAIN = "EXPLAIN FORMAT=JSON ";
+
+    private static final Map<String, Window> WINDOWS = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return THRESHOLD_MILLIS > 0;
+    }
+
+    static boolean isSlow(long elapsedNanos) {
+        return isEnabled() && elapsedNanos >= THRESHOLD_NANOS;
+    }
+
+    /**
+     * Called by QueryMetrics once a statement has executed. A slow query's
+     * result set is returned wrapped, so it is logged once its rows are counted.
+     *
+     * @param result what execute returned: a ResultSet, an update count, batch counts, or a boolean
+     */
+    static Object executed(String sql, Object[] params, int paramCount, long elapsedNanos, Object result) {
+        if (!isSlow(elapsedNanos) || sql.startsWith(EXPLAIN)) {
+            return result;
+        }
+        Object[] bound = params != null ? Arrays.copyOf(params, paramCount) : null;
+        if (result instanceof ResultSet) {
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new RowCounter((ResultSet) result, sql, bound, elapsedNanos));
+        }
+        log(sql, bound, elapsedNanos, rowsOf(result));
+        return result;
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(count, 0);
+            }
+        } else {
+            return -1; // execute() returned a boolean; the count is not known
+        }
+        return rows;
+    }
+
+    private static void log(String sql, Object[] params, long elapsedNanos, long rows) {
+        String fingerprint = QueryMetrics.normalize(sql);
+        if (WINDOWS.size() > MAX_FINGERPRINTS) {
+            WINDOWS.clear();
+        }
+        int skipped = WINDOWS.computeIfAbsent(fingerprint, k -> new Window()).tryLog(System.currentTimeMillis());
+        if (skipped < 0) {
+            return;
+        }
+
+        StringBuilder entry = new StringBuilder();
+        entry.append("# ").append(LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .append(String.format(Locale.ROOT, " %.1fms", elapsedNanos / 1e6))
+                .append(rows >= 0 ? " rows=" + rows : "");
+        if (skipped > 0) {
+            entry.append(" (").append(skipped).append(" similar skipped)");
+        }
+        entry.append('\n').append(sql.trim()).append('\n');
+        if (params != null) {
+            entry.append("# params: ").append(formatParams(params)).append('\n');
+        }
+
+        if (!EXPLAINABLE.matcher(sql).matches()) {
+            write(entry.toString());
+            return;
+        }
+        DatabaseExecutor.submit(() -> {
+            String plan;
+            try {
+                plan = explain(sql, params);
+            } catch (SQLException | RuntimeException e) {
+                plan = "not available: " + e.getMessage();
+            }
+            write(entry.append("# plan: ").append(plan).append('\n').toString());
+        });
+    }
+
+    private static String explain(String sql, Object[] params) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(EXPLAIN + sql)) {
+            int count = stmt.getParameterMetaData().getParameterCount();
+            for (int i = 0; i < count; i++) {
+                stmt.setObject(i + 1, params != null && i < params.length ? params[i] : null);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "empty";
+            }
+        }
+    }
+
+    private static String formatParams(Object[] params) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            if (value == null) {
+                sb.append("NULL");
+            } else if (value instanceof String) {
+                String text = (String) value;
+                if (AuthService.isHash(text)) {
+                    text = "<password hash>";
+                } else if (text.length() > MAX_PARAM_LENGTH) {
+                    text = text.substring(0, MAX_PARAM_LENGTH) + "...";
+                }
+                sb.append('\'').append(text).append('\'');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static synchronized void write(String entry) {
+        if (LOG_FILE == null || LOG_FILE.isEmpty()) {
+            System.err.print(entry);
+            return;
+        }
+        try {
+            Files.write(Paths.get(LOG_FILE), entry.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Could not write slow query log: " + e.getMessage());
+            System.err.print(entry);
+        }
+    }
+
+    // Rate limit for one fingerprint
+    private static final class Window {
+        private long loggedAt = Long.MIN_VALUE / 2;
+        private int skipped;
+
+        // Number of entries skipped since the last one, or -1 if this one is skipped too
+        synchronized int tryLog(long now) {
+            if (now - loggedAt < INTERVAL_MILLIS) {
+                skipped++;
+                return -1;
+            }
+            loggedAt = now;
+            int result = skipped;
+            skipped = 0;
+            return result;
+        }
+    }
+
+    // Counts the rows of a slow query and logs it once they have all been read or the result set is closed
+    private static final class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+        private final String sql;
+        private final Object[] params;
+        private final long elapsedNanos;
+        private long rows;
+        private boolean logged;
+
+        RowCounter(ResultSet target, String sql, Object[] params, long elapsedNanos) {
+            this.target = target;
+            this.sql = sql;
+            this.params = params;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            String name = method.getName();
+            if (name.equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    finish();
+                }
+            } else if (name.equals("close")) {
+                finish();
+            }
+            return result;
+        }
+
+        private void finish() {
+            if (!logged) {
+                logged = true;
+                log(sql, params, elapsedNanos, rows);
+            }
+        }
+    }
+}
@@ -9,6 +9,9 @@ public class User {
     private String fullName;
     private String email;
     private String createdAt;
+    // Maintained by LoanCounters
+    private int activeLoans;
+    private int overdueLoans;
 
     // Constructors
     public User() {}
@@ -78,6 +81,22 @@ public class User {
         this.createdAt = createdAt;
     }
 
+    public int getActiveLoans() {
+        return activeLoans;
+    }
+
+    public void setActiveLoans(int activeLoans) {
+        this.activeLoans = activeLoans;
+    }
+
+    public int getOverdueLoans() {
+        return overdueLoans;
+    }
+
+    public void setOverdueLoans(int overdueLoans) {
+        this.overdueLoans = overdueLoans;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -0,0 +1,267 @@
+// src/model/UserRepository.java
+package model;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * All SQL against the users table. Member lists and lookups by id may be served
+ * by a read replica; logins, the member index, checks before a write and users
+ * loaded for editing (findByIdOnPrimary) use the primary.
+ */
+public class UserRepository {
+    private static final String COLUMNS = "SELECT id, username, password, role, full_name, email, created_at, " +
+            "active_loans, overdue_loans ";
+
+    private static final String FIND_ALL = COLUMNS + "FROM users";
+    private static final String FIND_BY_ID = COLUMNS + "FROM users WHERE id = ?";
+    private static final String FIND_BY_USERNAME = COLUMNS + "FROM users WHERE username = ?";
+    private static final String FIND_MEMBERS = COLUMNS + "FROM users WHERE role = 'member'";
+    private static final String ACTIVE_LOANS = "SELECT active_loans FROM users WHERE id = ?";
+    private static final String EXISTS_BY_USERNAME = "SELECT id FROM users WHERE username = ?";
+    private static final String INSERT = "INSERT INTO users (username, password, role, full_name, email) " +
+            "VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE users SET role = ?, full_name = ?, email = ? WHERE id = ?";
+    private static final String UPDATE_WITH_PASSWORD =
+            "UPDATE users SET role = ?, full_name = ?, email = ?, password = ? WHERE id = ?";
+    private static final String UPDATE_PASSWORD = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+    private static final String DELETE = "DELETE FROM users WHERE id = ?";
+
+    public void forEach(Consumer<User> consumer) throws SQLException {
+        try (Connection conn = Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_ALL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                consumer.accept(map(rs));
+            }
+        }
+    }
+
+    public User findById(int id) throws SQLException {
+        return findById(id, false);
+    }
+
+    /**
+     * Like findById, but always reads the primary; for a user that is about to be edited.
+     */
+    public User findByIdOnPrimary(int id) throws SQLException {
+        return findById(id, true);
+    }
+
+    private User findById(int id, boolean primary) throws SQLException {
+        try (Connection conn = primary ? Database.getConnection() : Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Loads several users with one query, in the order of ids; ids that no longer exist are skipped.
+     */
+    public List<User> findByIds(List<Integer> ids) throws SQLException {
+        return findByIds(ids, false);
+    }
+
+    /**
+     * Like findByIds, but always reads the primary; for rows that go into the shared caches.
+     */
+    public List<User> findByIdsOnPrimary(List<Integer> ids) throws SQLException {
+        return findByIds(ids, true);
+    }
+
+    private List<User> findByIds(List<Integer> ids, boolean primary) throws SQLException {
+        List<User> users = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return users;
+        }
+        StringBuilder sql = new StringBuilder(COLUMNS).append("FROM users WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        Map<Integer, User> byId = new HashMap<>();
+        try (Connection conn = primary ? Database.getConnection() : Database.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = map(rs);
+                    byId.put(user.getId(), user);
+                }
+            }
+        }
+        for (Integer id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    public User findByUsername(String username) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_USERNAME)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Books the member still has out, from the counter kept by LoanCounters.
+     */
+    public int countActiveLoans(int userId) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ACTIVE_LOANS)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    public List<User> findMembers() throws SQLException {
+        List<User> members = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_MEMBERS);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                members.add(map(rs));
+            }
+        }
+        return members;
+    }
+
+    public boolean existsByUsername(String username) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(EXISTS_BY_USERNAME)) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Inserts the user and sets its generated id.
+     */
+    public int insert(User user) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, user.getPassword());
+                stmt.setString(3, user.getRole());
+                stmt.setString(4, user.getFullName());
+                stmt.setString(5, user.getEmail());
+                stmt.executeUpdate();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        user.setId(keys.getInt(1));
+                    }
+                }
+                ChangeLog.record(conn, ChangeLog.USERS, user.getId(), ChangeLog.Op.INSERT);
+                conn.commit();
+                return user.getId();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Writes the user's role, name and email, and the password only when
+     * passwordChanged, so an edit does not put back a hash that was replaced since
+     * the user was loaded.
+     */
+    public boolean update(User user, boolean passwordChanged) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(passwordChanged ? UPDATE_WITH_PASSWORD : UPDATE)) {
+                stmt.setString(1, user.getRole());
+                stmt.setString(2, user.getFullName());
+                stmt.setString(3, user.getEmail());
+                if (passwordChanged) {
+                    stmt.setString(4, user.getPassword());
+                }
+                stmt.setInt(passwordChanged ? 5 : 4, user.getId());
+                boolean updated = stmt.executeUpdate() > 0;
+                if (updated) {
+                    ChangeLog.record(conn, ChangeLog.USERS, user.getId(), ChangeLog.Op.UPDATE);
+                }
+                conn.commit();
+                return updated;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Replaces the stored password only if it still equals expected.
+     */
+    public boolean updatePassword(int id, String expected, String replacement) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_PASSWORD)) {
+            stmt.setString(1, replacement);
+            stmt.setInt(2, id);
+            stmt.setString(3, expected);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    public boolean delete(int id) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(DELETE)) {
+                stmt.setInt(1, id);
+                boolean deleted = stmt.executeUpdate() > 0;
+                if (deleted) {
+                    ChangeLog.record(conn, ChangeLog.USERS, id, ChangeLog.Op.DELETE);
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            }
+        }
+    }
+
+    static User map(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("username"));
+        user.setPassword(rs.getString("password"));
+        user.setRole(rs.getString("role"));
+        user.setFullName(rs.getString("full_name"));
+        user.setEmail(rs.getString("email"));
+        java.sql.Timestamp createdAt = rs.getTimestamp("created_at");
+        user.setCreatedAt(createdAt != null ? createdAt.toString() : null);
+        user.setActiveLoans(rs.getInt("active_loans"));
+        user.setOverdueLoans(rs.getInt("overdue_loans"));
+        return user;
+    }
+}
@@ -0,0 +1,139 @@
+// src/server/Json.java
+package server;
+
+import java.util.List;
+import model.Book;
+import model.CirculationResult;
+import model.User;
+
+/**
+ * Minimal JSON writer for the flat objects the HTTP API returns.
+ */
+public final class Json {
+    private final StringBuilder out = new StringBuilder();
+    private boolean needsComma;
+
+    private Json() {}
+
+    public static Json object() {
+        Json json = new Json();
+        json.out.append('{');
+        return json;
+    }
+
+    public Json field(String name, String value) {
+        key(name);
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        return this;
+    }
+
+    public Json field(String name, long value) {
+        key(name);
+        out.append(value);
+        return this;
+    }
+
+    public Json field(String name, boolean value) {
+        key(name);
+        out.append(value);
+        return this;
+    }
+
+    // Embeds an already serialized object or array
+    public Json raw(String name, String json) {
+        key(name);
+        out.append(json);
+        return this;
+    }
+
+    public String end() {
+        return out.append('}').toString();
+    }
+
+    public static String array(List<String> elements) {
+        return "[" + String.join(",", elements) + "]";
+    }
+
+    public static String error(String message) {
+        return object().field("error", message).end();
+    }
+
+    public static String of(Book book) {
+        return object()
+                .field("id", book.getId())
+                .field("title", book.getTitle())
+                .field("author", book.getAuthor())
+                .field("isbn", book.getIsbn())
+                .field("genre", book.getGenre())
+                .field("publicationYear", book.getPublicationYear())
+                .field("quantity", book.getQuantity())
+                .field("availableQuantity", book.getAvailableQuantity())
+                .end();
+    }
+
+    // Never includes the password column
+    public static String of(User user) {
+        return object()
+                .field("id", user.getId())
+                .field("username", user.getUsername())
+                .field("role", user.getRole())
+                .field("fullName", user.getFullName())
+                .field("email", user.getEmail())
+                .field("activeLoans", user.getActiveLoans())
+                .field("overdueLoans", user.getOverdueLoans())
+                .end();
+    }
+
+    public static String of(CirculationResult result) {
+        return object()
+                .field("itemId", result.getItemId())
+                .field("success", result.isSuccess())
+                .field("loanId", result.getLoanId())
+                .field("message", result.getMessage())
+                .end();
+    }
+
+    private void key(String name) {
+        if (needsComma) {
+            out.append(',');
+        }
+        needsComma = true;
+        quote(name);
+        out.append(':');
+    }
+
+    private void quote(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
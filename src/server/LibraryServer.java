@@ -0,0 +1,403 @@
+// src/server/LibraryServer.java
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import model.AuthService;
+import model.AvailabilityCache;
+import model.Book;
+import model.BookRepository;
+import model.BookSearchIndex;
+import model.CirculationQueue;
+import model.CirculationResult;
+import model.DatabaseExecutor;
+import model.ReplicaSet;
+import model.User;
+import model.UserRepository;
+
+/**
+ * JSON over HTTP for desks and kiosks that should not talk to MySQL directly.
+ *
+ *   GET  /api/books?afterTitle=&afterId=&limit=   one page in (title, id) order
+ *   GET  /api/books/{id}
+ *   GET  /api/books/search?q=
+ *   POST /api/loans               bookId, userId, days
+ *   POST /api/loans/{id}/return
+ *   GET  /api/users/{id}
+ *   GET  /api/users?username=
+ *   POST /api/login               username, password
+ *   POST /api/logout
+ *
+ * POST parameters may be sent form-encoded in the body or in the query string.
+ * Books can be read anonymously. Loans and users need the token returned by
+ * /api/login in an "Authorization: Bearer" header: checkouts, returns and
+ * member lookups are for staff, and a member may only look up themselves. The
+ * server listens on the loopback interface unless given another host, so
+ * exposing it to the network is an explicit choice.
+ * Requests run on DatabaseExecutor (one virtual thread each on Java 21+), and
+ * checkouts and returns go through the group-committing CirculationQueue.
+ */
+public class LibraryServer {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_LOAN_DAYS = 365;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final HttpServer http;
+    private final BookRepository bookRepository = new BookRepository();
+    private final UserRepository userRepository = new UserRepository();
+    private final Tokens tokens = new Tokens();
+
+    /**
+     * @param host the address to listen on, e.g. 127.0.0.1, or 0.0.0.0 for every interface
+     */
+    public LibraryServer(String host, int port) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(host, port), 0);
+        http.setExecutor(DatabaseExecutor.executor());
+        http.createContext("/api/books", new Route(this::books));
+        http.createContext("/api/loans", new Route(this::loans));
+        http.createContext("/api/users", new Route(this::users));
+        http.createContext("/api/login", new Route(this::login));
+        http.createContext("/api/logout", new Route(this::logout));
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+    }
+
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    private Response books(Request request) throws SQLException {
+        String[] path = request.path("/api/books");
+        if (path.length == 0) {
+            request.requireMethod("GET");
+            String afterTitle = request.param("afterTitle");
+            int afterId = request.intParam("afterId", 0);
+            int limit = Math.min(request.intParam("limit", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+            if (limit < 1) {
+                throw new BadRequest(400, "limit must be positive");
+            }
+            List<Book> page = bookRepository.findPage(afterTitle, afterId, limit);
+            Json json = Json.object().raw("books", booksJson(page));
+            if (page.size() == limit) {
+                Book last = page.get(page.size() - 1);
+                json.raw("next", Json.object()
+                        .field("afterTitle", last.getTitle())
+                        .field("afterId", last.getId())
+                        .end());
+            }
+            return Response.ok(json.end());
+        }
+        if (path.length == 1 && path[0].equals("search")) {
+            request.requireMethod("GET");
+            String query = request.requiredParam("q").trim();
+            List<Integer> ids = BookSearchIndex.shared().search(query);
+            return Response.ok(Json.object().raw("books", booksJson(bookRepository.findByIds(ids))).end());
+        }
+        if (path.length == 1) {
+            request.requireMethod("GET");
+            Book book = bookRepository.findById(parseId(path[0]));
+            if (book == null) {
+                throw new BadRequest(404, "Book not found");
+            }
+            return Response.ok(bookJson(book));
+        }
+        throw new BadRequest(404, "Not found");
+    }
+
+    private Response loans(Request request) throws Exception {
+        requireStaff(request);
+        String[] path = request.path("/api/loans");
+        CirculationResult result;
+        if (path.length == 0) {
+            request.requireMethod("POST");
+            int bookId = request.requiredIntParam("bookId");
+            int userId = request.requiredIntParam("userId");
+            int days = request.intParam("days", 14);
+            if (days < 1 || days > MAX_LOAN_DAYS) {
+                throw new BadRequest(400, "days must be between 1 and " + MAX_LOAN_DAYS);
+            }
+            result = await(CirculationQueue.shared().loan(bookId, userId, days));
+        } else if (path.length == 2 && path[1].equals("return")) {
+            request.requireMethod("POST");
+            result = await(CirculationQueue.shared().returnLoan(parseId(path[0])));
+        } else {
+            throw new BadRequest(404, "Not found");
+        }
+        return new Response(result.isSuccess() ? 200 : 409, Json.of(result));
+    }
+
+    private Response users(Request request) throws SQLException {
+        request.requireMethod("GET");
+        Tokens.Grant grant = authenticate(request);
+        String[] path = request.path("/api/users");
+        User user;
+        if (path.length == 0) {
+            user = userRepository.findByUsername(request.requiredParam("username"));
+        } else if (path.length == 1) {
+            user = userRepository.findById(parseId(path[0]));
+        } else {
+            throw new BadRequest(404, "Not found");
+        }
+        // Members get the same answer for other accounts whether or not they exist
+        if (!grant.isStaff() && (user == null || user.getId() != grant.userId)) {
+            throw new BadRequest(403, "Not allowed");
+        }
+        if (user == null) {
+            throw new BadRequest(404, "User not found");
+        }
+        return Response.ok(Json.of(user));
+    }
+
+    private Response login(Request request) throws SQLException {
+        request.requireMethod("POST");
+        User user;
+        try {
+            user = AuthService.shared().authenticate(request.requiredParam("username"),
+                    request.requiredParam("password"));
+        } catch (AuthService.LockedOutException e) {
+            throw new BadRequest(429, e.getMessage());
+        }
+        if (user == null) {
+            throw new BadRequest(401, "Invalid username or password");
+        }
+        return Response.ok(Json.object()
+                .field("token", tokens.issue(user))
+                .raw("user", Json.of(user))
+                .end());
+    }
+
+    private Response logout(Request request) {
+        request.requireMethod("POST");
+        tokens.revoke(request.bearerToken());
+        return Response.ok(Json.object().field("success", true).end());
+    }
+
+    private Tokens.Grant authenticate(Request request) {
+        Tokens.Grant grant = tokens.check(request.bearerToken());
+        if (grant == null) {
+            throw new BadRequest(401, "Log in via /api/login and send the token as \"Authorization: Bearer <token>\"");
+        }
+        return grant;
+    }
+
+    private Tokens.Grant requireStaff(Request request) {
+        Tokens.Grant grant = authenticate(request);
+        if (!grant.isStaff()) {
+            throw new BadRequest(403, "Not allowed");
+        }
+        return grant;
+    }
+
+    private static String booksJson(List<Book> books) {
+        List<String> elements = new ArrayList<>(books.size());
+        for (Book book : books) {
+            elements.add(bookJson(book));
+        }
+        return Json.array(elements);
+    }
+
+    // Availability comes from the write-through cache so it matches what the desks see
+    private static String bookJson(Book book) {
+        int available = AvailabilityCache.shared().get(book.getId());
+        if (available >= 0) {
+            book.setAvailableQuantity(available);
+        }
+        return Json.of(book);
+    }
+
+    private static CirculationResult await(CompletableFuture<CirculationResult> future)
+            throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static int parseId(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequest(400, "Invalid id: " + value);
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(Request request) throws Exception;
+    }
+
+    private static final class Route implements HttpHandler {
+        private final Endpoint endpoint;
+
+        Route(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            Response response;
+            // A request sees its own writes; one client's checkout does not move every client to the primary
+            ReplicaSet.Session.bind(new ReplicaSet.Session());
+            try {
+                response = endpoint.handle(new Request(exchange));
+            } catch (BadRequest e) {
+                response = new Response(e.status, Json.error(e.getMessage()));
+            } catch (SQLException e) {
+                System.err.println("Database error serving " + exchange.getRequestURI() + ": " + e.getMessage());
+                response = new Response(503, Json.error("Database unavailable"));
+            } catch (Exception e) {
+                e.printStackTrace();
+                response = new Response(500, Json.error("Internal error"));
+            } finally {
+                ReplicaSet.Session.bind(null);
+            }
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static final class Request {
+        private final HttpExchange exchange;
+        private final Map<String, String> params = new HashMap<>();
+
+        Request(HttpExchange exchange) throws IOException {
+            this.exchange = exchange;
+            parseInto(exchange.getRequestURI().getRawQuery(), params);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+                parseInto(readBody(exchange.getRequestBody()), params);
+            }
+        }
+
+        // Path segments after the context prefix, e.g. "/api/loans/7/return" -> ["7", "return"]
+        String[] path(String prefix) {
+            String rest = exchange.getRequestURI().getPath().substring(prefix.length());
+            rest = rest.replaceAll("^/+|/+$", "");
+            return rest.isEmpty() ? new String[0] : rest.split("/+");
+        }
+
+        String bearerToken() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                return null;
+            }
+            return header.substring(7).trim();
+        }
+
+        void requireMethod(String method) {
+            if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                throw new BadRequest(405, "Use " + method);
+            }
+        }
+
+        String param(String name) {
+            return params.get(name);
+        }
+
+        String requiredParam(String name) {
+            String value = params.get(name);
+            if (value == null || value.isEmpty()) {
+                throw new BadRequest(400, "Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        int intParam(String name, int defaultValue) {
+            String value = params.get(name);
+            return value == null || value.isEmpty() ? defaultValue : toInt(name, value);
+        }
+
+        int requiredIntParam(String name) {
+            return toInt(name, requiredParam(name));
+        }
+
+        private static int toInt(String name, String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new BadRequest(400, "Parameter " + name + " must be a number");
+            }
+        }
+
+        private static String readBody(InputStream in) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                body.write(buffer, 0, n);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new BadRequest(413, "Request body too large");
+                }
+            }
+            return body.toString("UTF-8");
+        }
+
+        private static void parseInto(String encoded, Map<String, String> params) {
+            if (encoded == null || encoded.isEmpty()) {
+                return;
+            }
+            for (String pair : encoded.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                try {
+                    params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+                } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                    throw new BadRequest(400, "Malformed parameter: " + key);
+                }
+            }
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+    }
+
+    // Turned into an error response with the given HTTP status
+    private static final class BadRequest extends RuntimeException {
+        final int status;
+
+        BadRequest(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+// src/server/Tokens.java
+package server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import model.User;
+
+/**
+ * Bearer tokens issued by POST /api/login.
+ *
+ * A token is 32 random bytes, kept only in memory, so restarting the server
+ * logs every client out. It expires after library.server.tokenMinutes (default
+ * 60) without use; each authenticated request starts the period again.
+ */
+final class Tokens {
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(
+            Long.getLong("library.server.tokenMinutes", 60L));
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ConcurrentHashMap<String, Grant> grants = new ConcurrentHashMap<>();
+
+    static final class Grant {
+        final int userId;
+        final String role;
+        volatile long lastUsed;
+
+        Grant(int userId, String role, long lastUsed) {
+            this.userId = userId;
+            this.role = role;
+            this.lastUsed = lastUsed;
+        }
+
+        boolean isStaff() {
+            return !"member".equals(role);
+        }
+    }
+
+    String issue(User user) {
+        long now = System.nanoTime();
+        // Logins are rare next to other requests, so expired tokens are dropped here
+        grants.values().removeIf(grant -> now - grant.lastUsed > IDLE_NANOS);
+
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        grants.put(token, new Grant(user.getId(), user.getRole(), now));
+        return token;
+    }
+
+    /**
+     * @return the grant for a live token, or null if it is unknown or expired
+     */
+    Grant check(String token) {
+        if (token == null) {
+            return null;
+        }
+        Grant grant = grants.get(token);
+        long now = System.nanoTime();
+        if (grant == null || now - grant.lastUsed > IDLE_NANOS) {
+            grants.remove(token);
+            return null;
+        }
+        grant.lastUsed = now;
+        return grant;
+    }
+
+    void revoke(String token) {
+        if (token != null) {
+            grants.remove(token);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+// src/view/AsyncLoader.java
+package view;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import model.DatabaseExecutor;
+
+/**
+ * Runs database work for a panel on the shared DatabaseExecutor and delivers the
+ * results back on the Event Dispatch Thread.
+ *
+ * Reads (submit and stream) are tracked one at a time: starting a new one cancels
+ * the read that is still running and drops any results it produces afterwards.
+ * Writes (run and await) are never cancelled or superseded; each one reports to
+ * its own callbacks. While anything is running the owner shows a wait cursor.
+ * All methods must be called on the EDT.
+ */
+public class AsyncLoader {
+    private static final int CHUNK_SIZE = 200;
+
+    // Produces rows one at a time into the sink, usually straight from a ResultSet
+    public interface RowSource<R> {
+        void produce(Consumer<R> sink) throws Exception;
+    }
+
+    private final Component owner;
+    private volatile int generation;
+    private Future<?> current;
+    private int writes; // Writes whose result has not been delivered yet
+
+    public AsyncLoader(Component owner) {
+        this.owner = owner;
+    }
+
+    public <T> void submit(Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        final int gen = begin();
+        current = DatabaseExecutor.submit(() -> {
+            try {
+                T result = work.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) {
+                        finish();
+                        onSuccess.accept(result);
+                    }
+                });
+            } catch (Exception e) {
+                deliverError(gen, e, onError);
+            }
+        });
+    }
+
+    /**
+     * Runs a write on the DatabaseExecutor. Unlike submit it is not cancelled by later
+     * requests, so its result always reaches onSuccess or onError.
+     */
+    public <T> void run(Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        DatabaseExecutor.submit(() -> {
+            try {
+                future.complete(work.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        await(future, onSuccess, onError);
+    }
+
+    /**
+     * Waits for work that is already running elsewhere, such as a queued circulation command.
+     * The work is never cancelled and several calls may be waiting at once.
+     */
+    public <T> void await(CompletableFuture<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        writes++;
+        updateCursor();
+        work.whenComplete((result, failure) -> SwingUtilities.invokeLater(() -> {
+            writes--;
+            updateCursor();
+            if (failure == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            onError.accept(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        }));
+    }
+
+    /**
+     * Streams rows in chunks of CHUNK_SIZE so the table fills in while the query is still running.
+     */
+    public <R> void stream(RowSource<R> source, Consumer<List<R>> onChunk, Runnable onDone,
+                           Consumer<Exception> onError) {
+        final int gen = begin();
+        current = DatabaseExecutor.submit(() -> {
+            ChunkSink<R> sink = new ChunkSink<>(gen, onChunk);
+            try {
+                source.produce(sink);
+                sink.flush();
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) {
+                        finish();
+                        onDone.run();
+                    }
+                });
+            } catch (CancellationException e) {
+                // Superseded by a newer request
+            } catch (Exception e) {
+                deliverError(gen, e, onError);
+            }
+        });
+    }
+
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        updateCursor();
+    }
+
+    public boolean isBusy() {
+        return writes > 0 || (current != null && !current.isDone());
+    }
+
+    private int begin() {
+        cancel();
+        owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        return generation;
+    }
+
+    private void finish() {
+        current = null;
+        updateCursor();
+    }
+
+    private void updateCursor() {
+        owner.setCursor(current != null || writes > 0
+                ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)
+                : Cursor.getDefaultCursor());
+    }
+
+    private void deliverError(int gen, Exception e, Consumer<Exception> onError) {
+        SwingUtilities.invokeLater(() -> {
+            if (gen == generation) {
+                finish();
+                onError.accept(e);
+            }
+        });
+    }
+
+    private final class ChunkSink<R> implements Consumer<R> {
+        private final int gen;
+        private final Consumer<List<R>> onChunk;
+        private List<R> buffer = new ArrayList<>(CHUNK_SIZE);
+
+        ChunkSink(int gen, Consumer<List<R>> onChunk) {
+            this.gen = gen;
+            this.onChunk = onChunk;
+        }
+
+        @Override
+        public void accept(R row) {
+            if (gen != generation || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            buffer.add(row);
+            if (buffer.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            List<R> chunk = buffer;
+            buffer = new ArrayList<>(CHUNK_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) {
+                    onChunk.accept(chunk);
+                }
+            });
+        }
+    }
+}
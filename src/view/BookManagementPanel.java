@@ -1,20 +1,34 @@
 package view;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import model.AvailabilityCache;
 import model.Book;
-import model.Database;
+import model.BookRepository;
+import model.BookSearchIndex;
+import model.ChangeFeed;
+import model.ChangeLog;
+import model.CirculationQueue;
+import model.MemberIndex;
 import model.User;
 
 public class BookManagementPanel extends JPanel {
     private JTable bookTable;
-    private DefaultTableModel tableModel;
+    private BookTableModel tableModel;
     private JTextField searchField;
     private User currentUser;
     private JPanel buttonPanel;
+    private final AsyncLoader loader = new AsyncLoader(this);
+    private final AsyncLoader writeTask = new AsyncLoader(this); // Separate so a search does not cancel a write
+    private final BookRepository bookRepository = new BookRepository();
+    private final Consumer<List<ChangeLog.Change>> changeListener = this::booksChanged;
 
     public BookManagementPanel(User user) {
         this.currentUser = user;
@@ -68,20 +82,13 @@ public class BookManagementPanel extends JPanel {
 
         add(topPanel, BorderLayout.NORTH);
 
-        // Create book table
-        String[] columnNames = {"ID", "Title", "Author", "ISBN", "Genre", "Year", "Total", "Available"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Create book table (rows are paged in as the table scrolls)
+        tableModel = new BookTableModel() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex >= 6) { // For quantity and available columns
-                    return Integer.class;
-                }
-                return String.class;
+            protected void loadFailed(SQLException e) {
+                JOptionPane.showMessageDialog(BookManagementPanel.this,
+                        "Error loading books: " + e.getMessage() + "\nRetrying in the background.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
             }
         };
 
@@ -107,6 +114,61 @@ public class BookManagementPanel extends JPanel {
         loadBooks();
     }
 
+    // Follow other desks' changes only while the panel is on screen
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeFeed.shared().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeFeed.shared().removeListener(changeListener);
+        super.removeNotify();
+    }
+
+    // Runs on the change feed thread: fetch the changed books, then patch the table on the EDT
+    private void booksChanged(List<ChangeLog.Change> changes) {
+        List<Integer> changedIds = new ArrayList<>();
+        Set<Object> deletedIds = new HashSet<>();
+        boolean inserted = false;
+        for (ChangeLog.Change change : changes) {
+            if (!ChangeLog.BOOKS.equals(change.getTable())) {
+                continue;
+            }
+            switch (change.getOp()) {
+                case RELOAD:
+                    SwingUtilities.invokeLater(tableModel::refresh);
+                    return;
+                case DELETE:
+                    deletedIds.add(change.getRowId());
+                    break;
+                case INSERT:
+                    inserted = true;
+                    changedIds.add(change.getRowId());
+                    break;
+                default:
+                    changedIds.add(change.getRowId());
+                    break;
+            }
+        }
+        if (changedIds.isEmpty() && deletedIds.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(changedIds.size());
+        try {
+            for (Book book : bookRepository.findByIds(changedIds)) {
+                rows.add(BookTableModel.toRow(book));
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        boolean anyInserted = inserted;
+        SwingUtilities.invokeLater(() -> tableModel.applyChanges(rows, deletedIds, anyInserted));
+    }
+
     private void styleButton(JButton button, String type) {
         button.setFocusPainted(false);
         button.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -139,66 +201,34 @@ public class BookManagementPanel extends JPanel {
     }
 
     private void loadBooks() {
-        tableModel.setRowCount(0); // Clear table
-
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT id, title, author, isbn, genre, publication_year, quantity, available_quantity " +
-                    "FROM books ORDER BY title";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getString("genre"),
-                        rs.getInt("publication_year"),
-                        rs.getInt("quantity"),
-                        rs.getInt("available_quantity")
-                };
-                tableModel.addRow(row);
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading books: " + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        loader.cancel(); // Drop a search that is still streaming in
+        tableModel.reload();
     }
 
     private void searchBooks() {
         String searchTerm = searchField.getText().trim();
-        tableModel.setRowCount(0); // Clear table
-
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT id, title, author, isbn, genre, publication_year, quantity, available_quantity " +
-                    "FROM books WHERE title LIKE ? OR author LIKE ? OR isbn LIKE ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, "%" + searchTerm + "%");
-            stmt.setString(2, "%" + searchTerm + "%");
-            stmt.setString(3, "%" + searchTerm + "%");
-
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getString("genre"),
-                        rs.getInt("publication_year"),
-                        rs.getInt("quantity"),
-                        rs.getInt("available_quantity")
-                };
-                tableModel.addRow(row);
+        if (searchTerm.isEmpty()) {
+            loadBooks();
+            return;
+        }
+        tableModel.showFixedRows(); // Clear table
+
+        // A new search supersedes one that is still running
+        loader.<Object[]>stream(sink -> {
+            // The index ranks the matches; the rows themselves come fresh from the database
+            java.util.List<Integer> ids = BookSearchIndex.shared().search(searchTerm);
+            for (Book book : bookRepository.findByIds(ids)) {
+                sink.accept(BookTableModel.toRow(book));
             }
-        } catch (SQLException ex) {
+        }, this::addRows, () -> {}, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error searching books: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
+    }
+
+    private void addRows(java.util.List<Object[]> rows) {
+        tableModel.appendFixedRows(rows);
     }
 
     private void showAddBookDialog() {
@@ -244,7 +274,6 @@ public class BookManagementPanel extends JPanel {
 
                 saveBook(book);
                 dialog.dispose();
-                loadBooks();
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Please enter valid numbers for year and quantity",
                         "Error", JOptionPane.ERROR_MESSAGE);
@@ -265,26 +294,20 @@ public class BookManagementPanel extends JPanel {
     }
 
     private void saveBook(Book book) {
-        try (Connection conn = Database.getConnection()) {
-            String sql = "INSERT INTO books (title, author, isbn, genre, publication_year, quantity, available_quantity) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getIsbn());
-            stmt.setString(4, book.getGenre());
-            stmt.setInt(5, book.getPublicationYear());
-            stmt.setInt(6, book.getQuantity());
-            stmt.setInt(7, book.getQuantity()); // Available equals total quantity initially
-
-            stmt.executeUpdate();
+        writeTask.run(() -> {
+            bookRepository.insert(book);
+            BookSearchIndex.shared().put(book);
+            AvailabilityCache.shared().set(book.getId(), book.getQuantity());
+            return book;
+        }, saved -> {
+            ChangeFeed.shared().pollNow();
             JOptionPane.showMessageDialog(this, "Book added successfully",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error saving book: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void showEditBookDialog() {
@@ -295,113 +318,97 @@ public class BookManagementPanel extends JPanel {
             return;
         }
 
-        int bookId = (int) tableModel.getValueAt(selectedRow, 0);
-
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT * FROM books WHERE id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, bookId);
-            ResultSet rs = stmt.executeQuery();
+        Integer bookId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        if (bookId == null) {
+            return; // Still loading
+        }
 
-            if (rs.next()) {
-                Book book = new Book(
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("isbn"),
-                        rs.getString("genre"),
-                        rs.getInt("publication_year"),
-                        rs.getInt("quantity")
-                );
-                book.setId(bookId);
-
-                JDialog dialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Edit Book", true);
-                dialog.setSize(400, 300);
-                dialog.setLocationRelativeTo(this);
-
-                JPanel panel = new JPanel(new GridLayout(7, 2, 5, 5));
-                panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-
-                JTextField titleField = new JTextField(book.getTitle());
-                JTextField authorField = new JTextField(book.getAuthor());
-                JTextField isbnField = new JTextField(book.getIsbn());
-                JTextField genreField = new JTextField(book.getGenre());
-                JTextField yearField = new JTextField(String.valueOf(book.getPublicationYear()));
-                JTextField quantityField = new JTextField(String.valueOf(book.getQuantity()));
-
-                panel.add(new JLabel("Title:"));
-                panel.add(titleField);
-                panel.add(new JLabel("Author:"));
-                panel.add(authorField);
-                panel.add(new JLabel("ISBN:"));
-                panel.add(isbnField);
-                panel.add(new JLabel("Genre:"));
-                panel.add(genreField);
-                panel.add(new JLabel("Publication Year:"));
-                panel.add(yearField);
-                panel.add(new JLabel("Quantity:"));
-                panel.add(quantityField);
-
-                JButton saveButton = new JButton("Save");
-                styleButton(saveButton, "primary");
-                saveButton.addActionListener(e -> {
-                    try {
-                        book.setTitle(titleField.getText());
-                        book.setAuthor(authorField.getText());
-                        book.setIsbn(isbnField.getText());
-                        book.setGenre(genreField.getText());
-                        book.setPublicationYear(Integer.parseInt(yearField.getText()));
-                        int newQuantity = Integer.parseInt(quantityField.getText());
-                        book.setQuantity(newQuantity);
-
-                        updateBook(book);
-                        dialog.dispose();
-                        loadBooks();
-                    } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(dialog, "Please enter valid numbers for year and quantity",
-                                "Error", JOptionPane.ERROR_MESSAGE);
-                    }
-                });
-
-                JButton cancelButton = new JButton("Cancel");
-                styleButton(cancelButton, "secondary");
-                cancelButton.addActionListener(e -> dialog.dispose());
-
-                JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-                buttonPanel.add(cancelButton);
-                buttonPanel.add(saveButton);
-
-                dialog.add(panel, BorderLayout.CENTER);
-                dialog.add(buttonPanel, BorderLayout.SOUTH);
-                dialog.setVisible(true);
+        writeTask.run(() -> bookRepository.findByIdOnPrimary(bookId), book -> {
+            if (book != null) {
+                openEditBookDialog(book);
             }
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error loading book details: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
+    }
+
+    private void openEditBookDialog(Book book) {
+        JDialog dialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Edit Book", true);
+        dialog.setSize(400, 300);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new GridLayout(7, 2, 5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JTextField titleField = new JTextField(book.getTitle());
+        JTextField authorField = new JTextField(book.getAuthor());
+        JTextField isbnField = new JTextField(book.getIsbn());
+        JTextField genreField = new JTextField(book.getGenre());
+        JTextField yearField = new JTextField(String.valueOf(book.getPublicationYear()));
+        JTextField quantityField = new JTextField(String.valueOf(book.getQuantity()));
+
+        panel.add(new JLabel("Title:"));
+        panel.add(titleField);
+        panel.add(new JLabel("Author:"));
+        panel.add(authorField);
+        panel.add(new JLabel("ISBN:"));
+        panel.add(isbnField);
+        panel.add(new JLabel("Genre:"));
+        panel.add(genreField);
+        panel.add(new JLabel("Publication Year:"));
+        panel.add(yearField);
+        panel.add(new JLabel("Quantity:"));
+        panel.add(quantityField);
+
+        JButton saveButton = new JButton("Save");
+        styleButton(saveButton, "primary");
+        saveButton.addActionListener(e -> {
+            try {
+                book.setTitle(titleField.getText());
+                book.setAuthor(authorField.getText());
+                book.setIsbn(isbnField.getText());
+                book.setGenre(genreField.getText());
+                book.setPublicationYear(Integer.parseInt(yearField.getText()));
+                int newQuantity = Integer.parseInt(quantityField.getText());
+                book.setQuantity(newQuantity);
+
+                updateBook(book);
+                dialog.dispose();
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(dialog, "Please enter valid numbers for year and quantity",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        styleButton(cancelButton, "secondary");
+        cancelButton.addActionListener(e -> dialog.dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(saveButton);
+
+        dialog.add(panel, BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setVisible(true);
     }
 
     private void updateBook(Book book) {
-        try (Connection conn = Database.getConnection()) {
-            String sql = "UPDATE books SET title = ?, author = ?, isbn = ?, genre = ?, " +
-                    "publication_year = ?, quantity = ? WHERE id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getIsbn());
-            stmt.setString(4, book.getGenre());
-            stmt.setInt(5, book.getPublicationYear());
-            stmt.setInt(6, book.getQuantity());
-            stmt.setInt(7, book.getId());
-
-            stmt.executeUpdate();
+        writeTask.run(() -> {
+            bookRepository.update(book);
+            BookSearchIndex.shared().put(book);
+            return book;
+        }, updated -> {
+            ChangeFeed.shared().pollNow();
             JOptionPane.showMessageDialog(this, "Book updated successfully",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error updating book: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void deleteBook() {
@@ -412,30 +419,35 @@ public class BookManagementPanel extends JPanel {
             return;
         }
 
-        int bookId = (int) tableModel.getValueAt(selectedRow, 0);
+        Integer bookId = (Integer) tableModel.getValueAt(selectedRow, 0);
         String bookTitle = (String) tableModel.getValueAt(selectedRow, 1);
+        if (bookId == null) {
+            return; // Still loading
+        }
 
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete '" + bookTitle + "'?",
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            try (Connection conn = Database.getConnection()) {
-                String sql = "DELETE FROM books WHERE id = ?";
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setInt(1, bookId);
-
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected > 0) {
+            writeTask.run(() -> {
+                boolean deleted = bookRepository.delete(bookId);
+                if (deleted) {
+                    BookSearchIndex.shared().remove(bookId);
+                    AvailabilityCache.shared().remove(bookId);
+                }
+                return deleted;
+            }, deleted -> {
+                if (deleted) {
                     JOptionPane.showMessageDialog(this, "Book deleted successfully",
                             "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadBooks();
+                    ChangeFeed.shared().pollNow();
                 }
-            } catch (SQLException ex) {
+            }, ex -> {
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this, "Error deleting book: " + ex.getMessage(),
                         "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
@@ -447,46 +459,41 @@ public class BookManagementPanel extends JPanel {
             return;
         }
 
-        int bookId = (int) tableModel.getValueAt(selectedRow, 0);
+        Integer bookId = (Integer) tableModel.getValueAt(selectedRow, 0);
         String bookTitle = (String) tableModel.getValueAt(selectedRow, 1);
-        int available = (int) tableModel.getValueAt(selectedRow, 7);
+        if (bookId == null) {
+            return; // Still loading
+        }
 
-        if (available <= 0) {
+        if (!AvailabilityCache.shared().isAvailable(bookId)) {
             JOptionPane.showMessageDialog(this, "No copies available for loan",
                     "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
         JDialog dialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Loan Book", true);
-        dialog.setSize(400, 200);
+        dialog.setSize(420, 320);
         dialog.setLocationRelativeTo(this);
 
-        JPanel panel = new JPanel(new GridLayout(3, 2, 10, 10));
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
-        // Get list of members from database
-        DefaultComboBoxModel<String> memberModel = new DefaultComboBoxModel<>();
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT id, username, full_name FROM users WHERE role = 'member'";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                memberModel.addElement(rs.getInt("id") + " - " + rs.getString("full_name"));
-            }
-        } catch (SQLException ex) {
-            ex.printStackTrace();
-        }
-
-        JComboBox<String> memberCombo = new JComboBox<>(memberModel);
+        MemberPicker memberPicker = new MemberPicker();
         JTextField daysField = new JTextField("14"); // Default 14-day loan period
 
-        panel.add(new JLabel("Book:"));
-        panel.add(new JLabel(bookTitle));
-        panel.add(new JLabel("Member:"));
-        panel.add(memberCombo);
-        panel.add(new JLabel("Loan Period (days):"));
-        panel.add(daysField);
+        JPanel bookRow = new JPanel(new GridLayout(1, 2, 10, 10));
+        bookRow.add(new JLabel("Book:"));
+        bookRow.add(new JLabel(bookTitle));
+        JPanel memberRow = new JPanel(new BorderLayout(10, 10));
+        memberRow.add(new JLabel("Member:"), BorderLayout.WEST);
+        memberRow.add(memberPicker, BorderLayout.CENTER);
+        JPanel daysRow = new JPanel(new GridLayout(1, 2, 10, 10));
+        daysRow.add(new JLabel("Loan Period (days):"));
+        daysRow.add(daysField);
+
+        panel.add(bookRow, BorderLayout.NORTH);
+        panel.add(memberRow, BorderLayout.CENTER);
+        panel.add(daysRow, BorderLayout.SOUTH);
 
         JButton saveButton = new JButton("Loan");
         styleButton(saveButton, "success");
@@ -499,12 +506,15 @@ public class BookManagementPanel extends JPanel {
                     return;
                 }
 
-                String selectedMember = (String) memberCombo.getSelectedItem();
-                int userId = Integer.parseInt(selectedMember.split(" - ")[0]);
+                MemberIndex.Member member = memberPicker.getSelectedMember();
+                if (member == null) {
+                    JOptionPane.showMessageDialog(dialog, "Please choose a member",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
 
-                loanBook(bookId, userId, days);
+                loanBook(bookId, member.getId(), days);
                 dialog.dispose();
-                loadBooks(); // Refresh book list
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(dialog, "Please enter valid number of days",
                         "Error", JOptionPane.ERROR_MESSAGE);
@@ -525,49 +535,20 @@ public class BookManagementPanel extends JPanel {
     }
 
     private void loanBook(int bookId, int userId, int days) {
-        try (Connection conn = Database.getConnection()) {
-            // Start transaction
-            conn.setAutoCommit(false);
-
-            try {
-                // 1. Check book availability
-                String checkSql = "SELECT available_quantity FROM books WHERE id = ? FOR UPDATE";
-                PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                checkStmt.setInt(1, bookId);
-                ResultSet rs = checkStmt.executeQuery();
-
-                if (rs.next() && rs.getInt("available_quantity") > 0) {
-                    // 2. Create loan record
-                    String loanSql = "INSERT INTO book_loans (book_id, user_id, loan_date, due_date, status) " +
-                            "VALUES (?, ?, CURRENT_DATE(), DATE_ADD(CURRENT_DATE(), INTERVAL ? DAY), 'borrowed')";
-                    PreparedStatement loanStmt = conn.prepareStatement(loanSql);
-                    loanStmt.setInt(1, bookId);
-                    loanStmt.setInt(2, userId);
-                    loanStmt.setInt(3, days);
-                    loanStmt.executeUpdate();
-
-                    // 3. Update book availability
-                    String updateSql = "UPDATE books SET available_quantity = available_quantity - 1 WHERE id = ?";
-                    PreparedStatement updateStmt = conn.prepareStatement(updateSql);
-                    updateStmt.setInt(1, bookId);
-                    updateStmt.executeUpdate();
-
-                    conn.commit();
-                    JOptionPane.showMessageDialog(this, "Book loaned successfully",
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                } else {
-                    conn.rollback();
-                    JOptionPane.showMessageDialog(this, "Book is no longer available",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
+        // Committed together with other desks' checkouts by the circulation queue
+        writeTask.await(CirculationQueue.shared().loan(bookId, userId, days), result -> {
+            if (result.isSuccess()) {
+                ChangeFeed.shared().pollNow(); // Show the new availability without waiting for the next poll
+                JOptionPane.showMessageDialog(this, "Book loaned successfully",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, result.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error loaning book: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
-}
\ No newline at end of file
+}
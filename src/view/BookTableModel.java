@@ -0,0 +1,94 @@
+// src/view/BookTableModel.java
+package view;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import model.AvailabilityCache;
+import model.Book;
+import model.BookRepository;
+
+/**
+ * Book catalog ordered by (title, id), loaded a page at a time.
+ * The page key is a Book with only title and id set.
+ */
+public class BookTableModel extends PagedTableModel<Book> {
+    private static final String[] COLUMN_NAMES = {"ID", "Title", "Author", "ISBN", "Genre", "Year", "Total", "Available"};
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 25;
+
+    private final BookRepository bookRepository = new BookRepository();
+
+    public BookTableModel() {
+        super(COLUMN_NAMES, PAGE_SIZE, MAX_CACHED_PAGES);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        if (columnIndex >= 6) { // For quantity and available columns
+            return Integer.class;
+        }
+        return String.class;
+    }
+
+    static Object[] toRow(Book book) {
+        return new Object[]{
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getIsbn(),
+                book.getGenre(),
+                book.getPublicationYear(),
+                book.getQuantity(),
+                book.getAvailableQuantity()
+        };
+    }
+
+    // The Available column is served from the shared cache, which is fresher than the loaded page
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Object value = super.getValueAt(rowIndex, columnIndex);
+        if (columnIndex == 7 && value != null) {
+            int cached = AvailabilityCache.shared().get((Integer) super.getValueAt(rowIndex, 0));
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    protected Book keyOf(Object[] row) {
+        Book key = new Book();
+        key.setId((Integer) row[0]);
+        key.setTitle((String) row[1]);
+        return key;
+    }
+
+    @Override
+    protected boolean sameKey(Book a, Book b) {
+        return a.getId() == b.getId() && java.util.Objects.equals(a.getTitle(), b.getTitle());
+    }
+
+    @Override
+    protected int fetchRowCount() throws SQLException {
+        return bookRepository.count();
+    }
+
+    @Override
+    protected List<Object[]> fetchPage(Book after, int limit) throws SQLException {
+        List<Book> books = after == null
+                ? bookRepository.findPage(null, 0, limit)
+                : bookRepository.findPage(after.getTitle(), after.getId(), limit);
+        List<Object[]> rows = new ArrayList<>(books.size());
+        for (Book book : books) {
+            rows.add(toRow(book));
+        }
+        return rows;
+    }
+
+    @Override
+    protected Book fetchKeyAt(int offset) throws SQLException {
+        return bookRepository.findKeyAt(offset);
+    }
+}
@@ -2,60 +2,115 @@ package view;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.*;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import model.BookLoan;
+import model.ChangeFeed;
+import model.ChangeLog;
+import model.CirculationQueue;
+import model.CirculationResult;
 import model.Database;
+import model.LoanFilter;
+import model.LoanRepository;
 import model.User;
 
 public class LoanManagementPanel extends JPanel {
     private JTable loanTable;
-    private DefaultTableModel tableModel;
+    private LoanTableModel tableModel;
     private User currentUser;
+    private JComboBox<LoanFilter.Status> statusBox;
+    private JTextField fromField;
+    private JTextField toField;
+    private JTextField borrowerField;
+    private JTextField titleField;
+    private JCheckBox includeArchivedCheckBox;
+    private final AsyncLoader returnTask = new AsyncLoader(this);
+    private final LoanRepository loanRepository = new LoanRepository();
+    private final Consumer<List<ChangeLog.Change>> changeListener = this::loansChanged;
 
     public LoanManagementPanel(User user) {
         this.currentUser = user;
         setLayout(new BorderLayout());
 
-        // Create top panel with buttons
-        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        // Create top panel with filters and buttons
+        JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
+        // Filter panel; the filters run in MySQL, so only matching loans are read
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        statusBox = new JComboBox<>(LoanFilter.Status.values());
+        statusBox.addActionListener(e -> loadLoans());
+        fromField = new JTextField(8);
+        fromField.setToolTipText("Loan date from, yyyy-mm-dd");
+        toField = new JTextField(8);
+        toField.setToolTipText("Loan date to, yyyy-mm-dd");
+        borrowerField = new JTextField(8);
+        borrowerField.setToolTipText("Start of the borrower's username");
+        titleField = new JTextField(12);
+        titleField.setToolTipText("Start of the book title");
+        for (JTextField field : new JTextField[]{fromField, toField, borrowerField, titleField}) {
+            field.addActionListener(e -> loadLoans());
+        }
+        // Loans returned long ago live in book_loans_archive; see LoanArchiver
+        includeArchivedCheckBox = new JCheckBox("Include archived");
+        includeArchivedCheckBox.addActionListener(e -> loadLoans());
+        JButton filterButton = new JButton("Filter");
+        styleButton(filterButton, "primary");
+        filterButton.addActionListener(e -> loadLoans());
+
+        filterPanel.add(new JLabel("Status:"));
+        filterPanel.add(statusBox);
+        filterPanel.add(new JLabel("From:"));
+        filterPanel.add(fromField);
+        filterPanel.add(new JLabel("To:"));
+        filterPanel.add(toField);
+        filterPanel.add(new JLabel("Borrower:"));
+        filterPanel.add(borrowerField);
+        filterPanel.add(new JLabel("Title:"));
+        filterPanel.add(titleField);
+        filterPanel.add(includeArchivedCheckBox);
+        filterPanel.add(filterButton);
+        topPanel.add(filterPanel, BorderLayout.CENTER);
+
+        // Button panel
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+
         // Add Return Book button (only for staff)
         if (!currentUser.getRole().equals("member")) {
             JButton returnButton = new JButton("Return Book");
             styleButton(returnButton, "success");
             returnButton.addActionListener(e -> returnBook());
-            topPanel.add(returnButton);
+            buttonPanel.add(returnButton);
         }
 
         JButton refreshButton = new JButton("Refresh");
         styleButton(refreshButton, "secondary");
         refreshButton.addActionListener(e -> loadLoans());
 
-        topPanel.add(refreshButton);
+        buttonPanel.add(refreshButton);
+        topPanel.add(buttonPanel, BorderLayout.EAST);
 
         add(topPanel, BorderLayout.NORTH);
 
-        // Create loan table
-        String[] columnNames = {"Loan ID", "Book Title", "Borrower", "Loan Date", "Due Date", "Status", "Return Date"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Create loan table (rows are paged in as the table scrolls)
+        tableModel = new LoanTableModel() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                // Column 0: ID (Integer), Columns 3-6: Dates (Date), others String
-                if (columnIndex == 0) return Integer.class;
-                if (columnIndex >= 3 && columnIndex <= 6) return java.sql.Date.class;
-                return String.class;
+            protected void loadFailed(SQLException e) {
+                JOptionPane.showMessageDialog(LoanManagementPanel.this,
+                        "Error loading loans: " + e.getMessage() + "\nRetrying in the background.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
             }
         };
 
         loanTable = new JTable(tableModel);
-        loanTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Several loans can be selected to return a pile of books at once
+        loanTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         loanTable.getTableHeader().setReorderingAllowed(false);
 
         // Set column widths
@@ -102,6 +157,19 @@ public class LoanManagementPanel extends JPanel {
         loadLoans();
     }
 
+    // Follow other desks' changes only while the panel is on screen
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeFeed.shared().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeFeed.shared().removeListener(changeListener);
+        super.removeNotify();
+    }
+
     private void styleButton(JButton button, String type) {
         button.setFocusPainted(false);
         button.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -134,39 +202,80 @@ public class LoanManagementPanel extends JPanel {
     }
 
     private void loadLoans() {
-        tableModel.setRowCount(0); // Clear table
-
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT bl.id, b.title, u.username, bl.loan_date, bl.due_date, " +
-                    "CASE WHEN bl.status = 'returned' THEN 'Returned' " +
-                    "WHEN bl.due_date < CURRENT_DATE() THEN 'Overdue' " +
-                    "ELSE 'Borrowed' END AS status, " +
-                    "bl.return_date " +
-                    "FROM book_loans bl " +
-                    "JOIN books b ON bl.book_id = b.id " +
-                    "JOIN users u ON bl.user_id = u.id " +
-                    "ORDER BY bl.loan_date DESC";
-
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("title"),
-                        rs.getString("username"),
-                        rs.getDate("loan_date"),
-                        rs.getDate("due_date"),
-                        rs.getString("status"),
-                        rs.getDate("return_date")
-                };
-                tableModel.addRow(row);
+        Date from;
+        Date to;
+        try {
+            from = parseDate(fromField);
+            to = parseDate(toField);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Please enter dates as yyyy-mm-dd",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        tableModel.setFilter(new LoanFilter((LoanFilter.Status) statusBox.getSelectedItem(), from, to,
+                borrowerField.getText(), titleField.getText(), includeArchivedCheckBox.isSelected()));
+    }
+
+    private static Date parseDate(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Date.valueOf(text);
+    }
+
+    // Runs on the change feed thread: fetch the changed loans, then patch the table on the EDT
+    private void loansChanged(List<ChangeLog.Change> changes) {
+        List<Integer> changedIds = new ArrayList<>();
+        Set<Integer> insertedIds = new HashSet<>();
+        Set<Object> deletedIds = new HashSet<>();
+        for (ChangeLog.Change change : changes) {
+            if (!ChangeLog.LOANS.equals(change.getTable())) {
+                continue;
+            }
+            switch (change.getOp()) {
+                case RELOAD:
+                    // Loans were moved to the archive; with the archive shown the list looks the same
+                    SwingUtilities.invokeLater(() -> {
+                        if (!tableModel.getFilter().isIncludeArchived()) {
+                            tableModel.refresh();
+                        }
+                    });
+                    return;
+                case DELETE:
+                    deletedIds.add(change.getRowId());
+                    break;
+                case INSERT:
+                    insertedIds.add(change.getRowId());
+                    changedIds.add(change.getRowId());
+                    break;
+                default:
+                    changedIds.add(change.getRowId());
+                    break;
+            }
+        }
+        if (changedIds.isEmpty() && deletedIds.isEmpty()) {
+            return;
+        }
+
+        LoanFilter filter = tableModel.getFilter();
+        List<Object[]> rows = new ArrayList<>(changedIds.size());
+        boolean inserted = false;
+        try {
+            for (BookLoan loan : loanRepository.findWithDetailsByIds(changedIds)) {
+                if (filter.matches(loan)) {
+                    rows.add(LoanTableModel.toRow(loan));
+                    inserted |= insertedIds.contains(loan.getId());
+                } else if (!insertedIds.contains(loan.getId())) {
+                    deletedIds.add(loan.getId()); // No longer passes the filter, e.g. returned in the active view
+                }
             }
         } catch (SQLException ex) {
             ex.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Error loading loans: " + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        if (rows.isEmpty() && deletedIds.isEmpty()) {
+            return;
+        }
+        boolean anyInserted = inserted;
+        SwingUtilities.invokeLater(() -> tableModel.applyChanges(rows, deletedIds, anyInserted));
     }
 
     private void returnBook() {
@@ -177,8 +286,16 @@ public class LoanManagementPanel extends JPanel {
             return;
         }
 
-        int loanId = (int) tableModel.getValueAt(selectedRow, 0);
+        if (loanTable.getSelectedRowCount() > 1) {
+            returnSelectedBooks();
+            return;
+        }
+
+        Integer loanId = (Integer) tableModel.getValueAt(selectedRow, 0);
         String status = (String) tableModel.getValueAt(selectedRow, 5);
+        if (loanId == null) {
+            return; // Still loading
+        }
 
         if ("Returned".equals(status)) {
             JOptionPane.showMessageDialog(this, "This book is already returned",
@@ -195,46 +312,66 @@ public class LoanManagementPanel extends JPanel {
         }
     }
 
-    private void processReturn(int loanId) {
-        try (Connection conn = Database.getConnection()) {
-            // Start transaction
-            conn.setAutoCommit(false);
-
-            try {
-                // 1. Get book ID from loan
-                String getLoanSql = "SELECT book_id FROM book_loans WHERE id = ? FOR UPDATE";
-                PreparedStatement getLoanStmt = conn.prepareStatement(getLoanSql);
-                getLoanStmt.setInt(1, loanId);
-                ResultSet rs = getLoanStmt.executeQuery();
-
-                if (rs.next()) {
-                    int bookId = rs.getInt("book_id");
-
-                    // 2. Update loan status
-                    String updateLoanSql = "UPDATE book_loans SET return_date = CURRENT_DATE(), status = 'returned' WHERE id = ?";
-                    PreparedStatement updateLoanStmt = conn.prepareStatement(updateLoanSql);
-                    updateLoanStmt.setInt(1, loanId);
-                    updateLoanStmt.executeUpdate();
-
-                    // 3. Update book availability
-                    String updateBookSql = "UPDATE books SET available_quantity = available_quantity + 1 WHERE id = ?";
-                    PreparedStatement updateBookStmt = conn.prepareStatement(updateBookSql);
-                    updateBookStmt.setInt(1, bookId);
-                    updateBookStmt.executeUpdate();
-
-                    conn.commit();
-                    JOptionPane.showMessageDialog(this, "Book returned successfully",
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadLoans(); // Refresh loan list
+    private void returnSelectedBooks() {
+        List<Integer> loanIds = new ArrayList<>();
+        for (int row : loanTable.getSelectedRows()) {
+            if (tableModel.getValueAt(row, 0) != null && !"Returned".equals(tableModel.getValueAt(row, 5))) {
+                loanIds.add((Integer) tableModel.getValueAt(row, 0));
+            }
+        }
+        if (loanIds.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "The selected books are already returned",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Are you sure you want to mark " + loanIds.size() + " books as returned?",
+                "Confirm Return", JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        returnTask.run(() -> Database.returnBooks(loanIds), results -> {
+            StringBuilder failures = new StringBuilder();
+            int returned = 0;
+            for (CirculationResult result : results) {
+                if (result.isSuccess()) {
+                    returned++;
+                } else {
+                    failures.append("\nLoan ").append(result.getItemId()).append(": ").append(result.getMessage());
                 }
-            } catch (SQLException ex) {
-                conn.rollback();
-                throw ex;
             }
-        } catch (SQLException ex) {
+            if (failures.length() == 0) {
+                JOptionPane.showMessageDialog(this, returned + " books returned successfully",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, returned + " books returned." + failures,
+                        "Warning", JOptionPane.WARNING_MESSAGE);
+            }
+            ChangeFeed.shared().pollNow();
+        }, ex -> {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Error returning books: " + ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void processReturn(int loanId) {
+        // Runs on its own loader so a refresh does not cancel the return
+        returnTask.await(CirculationQueue.shared().returnLoan(loanId), result -> {
+            if (result.isSuccess()) {
+                JOptionPane.showMessageDialog(this, "Book returned successfully",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                ChangeFeed.shared().pollNow();
+            } else {
+                JOptionPane.showMessageDialog(this, result.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error returning book: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 }
\ No newline at end of file
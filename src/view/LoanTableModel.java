@@ -0,0 +1,102 @@
+// src/view/LoanTableModel.java
+package view;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import model.BookLoan;
+import model.LoanFilter;
+import model.LoanRepository;
+
+/**
+ * Loans that pass a LoanFilter ordered by (loan_date, id), newest first,
+ * loaded a page at a time. The page key is a BookLoan with only loanDate and
+ * id set.
+ */
+public class LoanTableModel extends PagedTableModel<BookLoan> {
+    private static final String[] COLUMN_NAMES =
+            {"Loan ID", "Book Title", "Borrower", "Loan Date", "Due Date", "Status", "Return Date"};
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 25;
+
+    private final LoanRepository loanRepository = new LoanRepository();
+    // Read by the page loaders; replaced on the EDT together with a reload
+    private volatile LoanFilter filter = LoanFilter.activeOnly();
+
+    public LoanTableModel() {
+        super(COLUMN_NAMES, PAGE_SIZE, MAX_CACHED_PAGES);
+    }
+
+    public LoanFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Shows the loans that pass the given filter, starting from the top.
+     */
+    public void setFilter(LoanFilter filter) {
+        this.filter = filter;
+        reload();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        // Column 0: ID (Integer), Columns 3-6: Dates (Date), others String
+        if (columnIndex == 0) return Integer.class;
+        if (columnIndex >= 3 && columnIndex <= 6) return java.sql.Date.class;
+        return String.class;
+    }
+
+    static Object[] toRow(BookLoan loan) {
+        return new Object[]{
+                loan.getId(),
+                loan.getBookTitle(),
+                loan.getBorrowerUsername(),
+                loan.getLoanDate(),
+                loan.getDueDate(),
+                displayStatus(loan.getStatus()),
+                loan.getReturnDate()
+        };
+    }
+
+    // borrowed / overdue / returned as shown in the table
+    private static String displayStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return status;
+        }
+        return Character.toUpperCase(status.charAt(0)) + status.substring(1);
+    }
+
+    @Override
+    protected BookLoan keyOf(Object[] row) {
+        BookLoan key = new BookLoan();
+        key.setId((Integer) row[0]);
+        key.setLoanDate((java.sql.Date) row[3]);
+        return key;
+    }
+
+    @Override
+    protected boolean sameKey(BookLoan a, BookLoan b) {
+        return a.getId() == b.getId() && java.util.Objects.equals(a.getLoanDate(), b.getLoanDate());
+    }
+
+    @Override
+    protected int fetchRowCount() throws SQLException {
+        return loanRepository.count(filter);
+    }
+
+    @Override
+    protected List<Object[]> fetchPage(BookLoan after, int limit) throws SQLException {
+        List<BookLoan> loans = loanRepository.findPage(filter, after, limit);
+        List<Object[]> rows = new ArrayList<>(loans.size());
+        for (BookLoan loan : loans) {
+            rows.add(toRow(loan));
+        }
+        return rows;
+    }
+
+    @Override
+    protected BookLoan fetchKeyAt(int offset) throws SQLException {
+        return loanRepository.findKeyAt(filter, offset);
+    }
+}
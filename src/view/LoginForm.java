@@ -3,13 +3,14 @@ package view;
 
 import javax.swing.*;
 import java.awt.*;
+import model.AuthService;
 import model.User;
-import model.Database;
-import java.sql.*;
 
 public class LoginForm extends JFrame {
     private JTextField usernameField;
     private JPasswordField passwordField;
+    private JButton loginButton;
+    private final AsyncLoader loginTask = new AsyncLoader(this);
 
     public LoginForm() {
         setTitle("Library Management System - Login");
@@ -51,7 +52,7 @@ public class LoginForm extends JFrame {
         panel.add(passwordField, gbc);
 
         // Login button
-        JButton loginButton = new JButton("Login");
+        loginButton = new JButton("Login");
         loginButton.setBackground(new Color(13, 110, 253)); // Bootstrap primary blue
         loginButton.setForeground(Color.WHITE);
         loginButton.setFocusPainted(false);
@@ -71,32 +72,26 @@ public class LoginForm extends JFrame {
             return;
         }
 
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, username);
-            stmt.setString(2, password);
-            
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setRole(rs.getString("role"));
-                user.setFullName(rs.getString("full_name"));
-                user.setEmail(rs.getString("email"));
-                
+        loginButton.setEnabled(false);
+        loginTask.submit(() -> AuthService.shared().authenticate(username, password), user -> {
+            loginButton.setEnabled(true);
+            if (user != null) {
                 dispose();
                 new MainFrame(user).setVisible(true);
             } else {
                 JOptionPane.showMessageDialog(this, "Invalid username or password", 
                     "Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException ex) {
+        }, ex -> {
+            loginButton.setEnabled(true);
+            if (ex instanceof AuthService.LockedOutException) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(), 
                 "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 }
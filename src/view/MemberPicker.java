@@ -0,0 +1,108 @@
+// src/view/MemberPicker.java
+package view;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.sql.SQLException;
+import java.util.List;
+import model.MemberIndex;
+
+/**
+ * Type-ahead member selection: a search field over a short list of the best
+ * matches from MemberIndex. Typing a name, username or id narrows the list,
+ * the best match is highlighted, and Down moves into the list to pick another.
+ */
+public class MemberPicker extends JPanel {
+    private static final int MAX_MATCHES = 20;
+
+    private final JTextField searchField = new JTextField();
+    private final DefaultListModel<MemberIndex.Member> matches = new DefaultListModel<>();
+    private final JList<MemberIndex.Member> matchList = new JList<>(matches);
+    private final AsyncLoader indexLoader = new AsyncLoader(this);
+
+    public MemberPicker() {
+        super(new BorderLayout(0, 4));
+        searchField.setToolTipText("Type a name, username or member id");
+        matchList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        matchList.setVisibleRowCount(5);
+
+        add(searchField, BorderLayout.NORTH);
+        add(new JScrollPane(matchList), BorderLayout.CENTER);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                refresh();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                refresh();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                refresh();
+            }
+        });
+        searchField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_DOWN && !matches.isEmpty()) {
+                    matchList.requestFocusInWindow();
+                    matchList.setSelectedIndex(Math.min(matchList.getSelectedIndex() + 1, matches.size() - 1));
+                }
+            }
+        });
+
+        if (!MemberIndex.shared().isBuilt()) {
+            // First use: load the members off the EDT and accept typing once they are in
+            searchField.setEnabled(false);
+            searchField.setText("Loading members...");
+            indexLoader.submit(() -> {
+                MemberIndex.shared().ensureBuilt();
+                return null;
+            }, ignored -> {
+                searchField.setText("");
+                searchField.setEnabled(true);
+                searchField.requestFocusInWindow();
+            }, ex -> {
+                ex.printStackTrace();
+                searchField.setText("Could not load members: " + ex.getMessage());
+            });
+        }
+    }
+
+    /**
+     * The highlighted member, or the only match if nothing is highlighted.
+     */
+    public MemberIndex.Member getSelectedMember() {
+        MemberIndex.Member selected = matchList.getSelectedValue();
+        if (selected == null && matches.size() == 1) {
+            selected = matches.get(0);
+        }
+        return selected;
+    }
+
+    private void refresh() {
+        if (!searchField.isEnabled()) {
+            return;
+        }
+        matches.clear();
+        try {
+            List<MemberIndex.Member> found = MemberIndex.shared().search(searchField.getText(), MAX_MATCHES);
+            for (MemberIndex.Member member : found) {
+                matches.addElement(member);
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace(); // Only reached if the index is not built yet, which the constructor prevents
+        }
+        if (!matches.isEmpty()) {
+            matchList.setSelectedIndex(0);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+// src/view/PagedTableModel.java
+package view;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import model.DatabaseExecutor;
+
+/**
+ * Table model that loads rows in fixed-size pages as the JTable asks for them.
+ *
+ * Pages are fetched with keyset pagination: the key of the last row of page n is
+ * remembered and used as the starting point of page n + 1, so scrolling never
+ * makes MySQL skip over rows with OFFSET. Jumping straight to a page whose
+ * starting key is unknown costs one key-only lookup. Neighbouring pages are
+ * prefetched and only the most recently used pages are kept in memory. A page
+ * that failed to load is fetched again the next time it is asked for, at most
+ * once every RETRY_MILLIS; a failed row count is retried after RETRY_MILLIS.
+ * The first failure after a successful load is passed to loadFailed() on the
+ * EDT, so a panel can tell the user once instead of on every retry.
+ *
+ * The model can also show a fixed list of rows (search results) instead of the
+ * paged data; reload() switches back to paging. Changes made elsewhere are
+ * applied with applyChanges(), which patches cached rows in place and only
+ * recounts when rows were added or removed. Must be used on the EDT.
+ *
+ * @param <K> the sort key of a row
+ */
+public abstract class PagedTableModel<K> extends AbstractTableModel {
+    private static final long RETRY_MILLIS = 2000;
+
+    private final String[] columnNames;
+    private final int pageSize;
+    private final int maxCachedPages;
+
+    private final Map<Integer, List<Object[]>> pages;
+    private final Map<Integer, K> pageStartKeys = new HashMap<>(); // key of the row before each page
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, Long> failedAt = new HashMap<>(); // when each failed page last failed
+    private List<Object[]> fixedRows;
+    private int rowCount;
+    private int generation;
+    private boolean failing; // Set by a failed load, cleared by the next successful one
+
+    protected PagedTableModel(String[] columnNames, int pageSize, int maxCachedPages) {
+        this.columnNames = columnNames;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<Integer, List<Object[]>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+                return size() > PagedTableModel.this.maxCachedPages;
+            }
+        };
+    }
+
+    // The following run on a background thread
+
+    protected abstract int fetchRowCount() throws SQLException;
+
+    // Rows sorted by key that come after afterKey (or from the start when afterKey is null)
+    protected abstract List<Object[]> fetchPage(K afterKey, int limit) throws SQLException;
+
+    // Key of the row at the given position, used when jumping to a page
+    protected abstract K fetchKeyAt(int offset) throws SQLException;
+
+    protected abstract K keyOf(Object[] row);
+
+    // Whether two rows sort to the same place; override for key types without equals()
+    protected boolean sameKey(K a, K b) {
+        return a.equals(b);
+    }
+
+    // Identity of a row across reloads; the first column by default
+    protected Object rowId(Object[] row) {
+        return row[0];
+    }
+
+    // Called on the EDT when loading starts failing; the model retries by itself
+    protected void loadFailed(SQLException e) {
+    }
+
+    /**
+     * Drops all cached pages and starts paging from the top again.
+     */
+    public void reload() {
+        loadRowCount(reset());
+    }
+
+    private void loadRowCount(int gen) {
+        DatabaseExecutor.submit(() -> {
+            try {
+                int count = fetchRowCount();
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) {
+                        failing = false;
+                        rowCount = count;
+                        fireTableDataChanged();
+                    }
+                });
+            } catch (SQLException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (gen != generation) {
+                        return;
+                    }
+                    reportFailure(e);
+                    Timer retry = new Timer((int) RETRY_MILLIS, event -> {
+                        if (gen == generation) {
+                            loadRowCount(gen);
+                        }
+                    });
+                    retry.setRepeats(false);
+                    retry.start();
+                });
+            }
+        });
+    }
+
+    /**
+     * Re-counts the rows and drops the cached pages, but keeps showing the
+     * current rows until the new count arrives, so the table does not flicker
+     * or lose its scroll position.
+     */
+    public void refresh() {
+        if (fixedRows != null) {
+            return;
+        }
+        final int gen = generation;
+        DatabaseExecutor.submit(() -> {
+            try {
+                int count = fetchRowCount();
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation && fixedRows == null) {
+                        generation++;
+                        pages.clear();
+                        pageStartKeys.clear();
+                        loading.clear();
+                        failedAt.clear();
+                        rowCount = count;
+                        fireTableDataChanged();
+                    }
+                });
+            } catch (SQLException e) {
+                // The current rows stay on screen; the next change or reload tries again
+                SwingUtilities.invokeLater(() -> reportFailure(e));
+            }
+        });
+    }
+
+    /**
+     * Applies rows changed by another desk: updated rows replace the cached
+     * rows with the same id, deleted ids disappear. When paging, anything that
+     * moves rows between pages (inserts, deletes, a changed sort key) falls back
+     * to refresh(); fixed rows are only patched, never extended.
+     */
+    public void applyChanges(List<Object[]> updatedRows, Set<Object> deletedIds, boolean inserted) {
+        Map<Object, Object[]> updated = new HashMap<>();
+        for (Object[] row : updatedRows) {
+            updated.put(rowId(row), row);
+        }
+
+        if (fixedRows != null) {
+            for (int i = fixedRows.size() - 1; i >= 0; i--) {
+                Object id = rowId(fixedRows.get(i));
+                if (deletedIds.contains(id)) {
+                    fixedRows.remove(i);
+                    fireTableRowsDeleted(i, i);
+                } else if (updated.containsKey(id)) {
+                    fixedRows.set(i, updated.get(id));
+                    fireTableRowsUpdated(i, i);
+                }
+            }
+            return;
+        }
+
+        boolean moved = inserted || !deletedIds.isEmpty();
+        for (Map.Entry<Integer, List<Object[]>> entry : pages.entrySet()) {
+            List<Object[]> rows = entry.getValue();
+            for (int i = 0; i < rows.size() && !moved; i++) {
+                Object[] replacement = updated.get(rowId(rows.get(i)));
+                if (replacement == null) {
+                    continue;
+                }
+                if (!sameKey(keyOf(replacement), keyOf(rows.get(i)))) {
+                    moved = true;
+                } else {
+                    rows.set(i, replacement);
+                    int index = entry.getKey() * pageSize + i;
+                    if (index < rowCount) {
+                        fireTableRowsUpdated(index, index);
+                    }
+                }
+            }
+        }
+        if (moved) {
+            refresh();
+        }
+    }
+
+    /**
+     * Replaces the paged data with an initially empty fixed list of rows.
+     */
+    public void showFixedRows() {
+        reset();
+        fixedRows = new ArrayList<>();
+        fireTableDataChanged();
+    }
+
+    public void appendFixedRows(List<Object[]> rows) {
+        if (fixedRows == null || rows.isEmpty()) {
+            return;
+        }
+        int first = fixedRows.size();
+        fixedRows.addAll(rows);
+        fireTableRowsInserted(first, fixedRows.size() - 1);
+    }
+
+    private int reset() {
+        generation++;
+        pages.clear();
+        pageStartKeys.clear();
+        loading.clear();
+        failedAt.clear();
+        fixedRows = null;
+        rowCount = 0;
+        fireTableDataChanged();
+        return generation;
+    }
+
+    @Override
+    public int getRowCount() {
+        return fixedRows != null ? fixedRows.size() : rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    /**
+     * Returns null while the page holding the row is still loading.
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (fixedRows != null) {
+            return fixedRows.get(rowIndex)[columnIndex];
+        }
+        int page = rowIndex / pageSize;
+        List<Object[]> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        // Warm up the neighbours so scrolling in either direction finds them ready
+        requestPage(page + 1);
+        if (page > 0) {
+            requestPage(page - 1);
+        }
+        int offset = rowIndex % pageSize;
+        return offset < rows.size() ? rows.get(offset)[columnIndex] : null;
+    }
+
+    private void requestPage(int page) {
+        if (page * pageSize >= rowCount || pages.containsKey(page) || loading.contains(page)) {
+            return;
+        }
+        Long lastFailure = failedAt.get(page);
+        if (lastFailure != null && System.currentTimeMillis() - lastFailure < RETRY_MILLIS) {
+            return;
+        }
+        failedAt.remove(page);
+        loading.add(page);
+        final int gen = generation;
+        final K knownStart = page == 0 ? null : pageStartKeys.get(page);
+        DatabaseExecutor.submit(() -> {
+            try {
+                K start = knownStart;
+                if (page > 0 && start == null) {
+                    start = fetchKeyAt(page * pageSize - 1);
+                }
+                // A missing start key means rows were deleted since the count was taken
+                List<Object[]> rows = page > 0 && start == null
+                        ? new ArrayList<>()
+                        : fetchPage(start, pageSize);
+                SwingUtilities.invokeLater(() -> pageLoaded(gen, page, rows));
+            } catch (SQLException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (gen == generation) {
+                        loading.remove(page);
+                        failedAt.put(page, System.currentTimeMillis());
+                        reportFailure(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private void reportFailure(SQLException e) {
+        e.printStackTrace();
+        if (!failing) {
+            failing = true;
+            loadFailed(e);
+        }
+    }
+
+    private void pageLoaded(int gen, int page, List<Object[]> rows) {
+        if (gen != generation) {
+            return;
+        }
+        failing = false;
+        loading.remove(page);
+        pages.put(page, rows);
+        if (!rows.isEmpty()) {
+            pageStartKeys.put(page + 1, keyOf(rows.get(rows.size() - 1)));
+            int first = page * pageSize;
+            int last = Math.min(first + rows.size(), rowCount) - 1;
+            if (last >= first) {
+                fireTableRowsUpdated(first, last);
+            }
+        }
+    }
+}
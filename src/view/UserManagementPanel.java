@@ -5,14 +5,27 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import model.AuthService;
+import model.ChangeFeed;
+import model.ChangeLog;
+import model.MemberIndex;
 import model.User;
-import model.Database;
+import model.UserRepository;
 
 public class UserManagementPanel extends JPanel {
     private JTable userTable;
     private DefaultTableModel tableModel;
     private User currentUser;
+    private final AsyncLoader loader = new AsyncLoader(this);
+    private final AsyncLoader writeTask = new AsyncLoader(this); // Separate so a reload does not cancel a write
+    private final UserRepository userRepository = new UserRepository();
+    private final Consumer<List<ChangeLog.Change>> changeListener = this::usersChanged;
 
     public UserManagementPanel(User user) {
         this.currentUser = user;
@@ -46,12 +59,17 @@ public class UserManagementPanel extends JPanel {
         add(topPanel, BorderLayout.NORTH);
 
         // Create user table
-        String[] columnNames = {"ID", "Username", "Role", "Full Name", "Email", "Created At"};
+        String[] columnNames = {"ID", "Username", "Role", "Full Name", "Email", "Created At", "Loans", "Overdue"};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false;
             }
+
+            @Override
+            public Class<?> getColumnClass(int columnIndex) {
+                return columnIndex == 0 || columnIndex >= 6 ? Integer.class : String.class;
+            }
         };
 
         userTable = new JTable(tableModel);
@@ -65,6 +83,8 @@ public class UserManagementPanel extends JPanel {
         userTable.getColumnModel().getColumn(3).setPreferredWidth(150); // Full Name
         userTable.getColumnModel().getColumn(4).setPreferredWidth(150); // Email
         userTable.getColumnModel().getColumn(5).setPreferredWidth(120); // Created At
+        userTable.getColumnModel().getColumn(6).setPreferredWidth(50);  // Loans
+        userTable.getColumnModel().getColumn(7).setPreferredWidth(60);  // Overdue
 
         JScrollPane scrollPane = new JScrollPane(userTable);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -74,6 +94,19 @@ public class UserManagementPanel extends JPanel {
         loadUsers();
     }
 
+    // Follow other desks' changes only while the panel is on screen
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeFeed.shared().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeFeed.shared().removeListener(changeListener);
+        super.removeNotify();
+    }
+
     private void styleButton(JButton button, String type) {
         button.setFocusPainted(false);
         button.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -108,26 +141,79 @@ public class UserManagementPanel extends JPanel {
     private void loadUsers() {
         tableModel.setRowCount(0); // Clear table
 
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT * FROM users";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("username"),
-                        rs.getString("role"),
-                        rs.getString("full_name"),
-                        rs.getString("email"),
-                        rs.getTimestamp("created_at").toString()
-                };
+        loader.<Object[]>stream(sink -> userRepository.forEach(user -> sink.accept(toRow(user))), rows -> {
+            for (Object[] row : rows) {
                 tableModel.addRow(row);
             }
-        } catch (SQLException ex) {
+        }, () -> {}, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error loading users: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private static Object[] toRow(User user) {
+        return new Object[]{
+                user.getId(),
+                user.getUsername(),
+                user.getRole(),
+                user.getFullName(),
+                user.getEmail(),
+                user.getCreatedAt(),
+                user.getActiveLoans(),
+                user.getOverdueLoans()
+        };
+    }
+
+    // Runs on the change feed thread: fetch the changed users, then patch the table on the EDT
+    private void usersChanged(List<ChangeLog.Change> changes) {
+        Map<Integer, User> changed = new HashMap<>(); // A null value means the user is gone
+        List<Integer> toLoad = new ArrayList<>();
+        for (ChangeLog.Change change : changes) {
+            if (ChangeLog.USERS.equals(change.getTable())) {
+                changed.put(change.getRowId(), null);
+                if (change.getOp() != ChangeLog.Op.DELETE) {
+                    toLoad.add(change.getRowId());
+                }
+            }
+        }
+        try {
+            // Loaded in one query; a user missing from the result was deleted since
+            for (User user : userRepository.findByIds(toLoad)) {
+                changed.put(user.getId(), user);
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        if (!changed.isEmpty()) {
+            SwingUtilities.invokeLater(() -> applyUsers(changed));
+        }
+    }
+
+    private void applyUsers(Map<Integer, User> changed) {
+        Map<Integer, User> pending = new HashMap<>(changed);
+        // Bottom up, so removing a row does not shift the ones still to visit
+        for (int row = tableModel.getRowCount() - 1; row >= 0; row--) {
+            Integer id = (Integer) tableModel.getValueAt(row, 0);
+            if (!pending.containsKey(id)) {
+                continue;
+            }
+            User user = pending.remove(id);
+            if (user == null) {
+                tableModel.removeRow(row);
+            } else {
+                Object[] values = toRow(user);
+                for (int column = 0; column < values.length; column++) {
+                    tableModel.setValueAt(values[column], row, column);
+                }
+            }
+        }
+        // Whatever is left was added since the table was loaded
+        for (User user : pending.values()) {
+            if (user != null) {
+                tableModel.addRow(toRow(user));
+            }
         }
     }
 
@@ -159,18 +245,17 @@ public class UserManagementPanel extends JPanel {
         JButton saveButton = new JButton("Save");
         styleButton(saveButton, "success");
         saveButton.addActionListener(e -> {
-            if (validateUserInput(usernameField, passwordField, fullNameField, emailField)) {
+            if (validateUserInput(usernameField, passwordField, true, fullNameField, emailField)) {
                 User newUser = new User(
                         usernameField.getText(),
-                        new String(passwordField.getPassword()),
+                        null, // Hashed off the EDT by saveUser
                         (String) roleComboBox.getSelectedItem(),
                         fullNameField.getText(),
                         emailField.getText()
                 );
 
-                saveUser(newUser);
+                saveUser(newUser, new String(passwordField.getPassword()));
                 dialog.dispose();
-                loadUsers();
             }
         });
 
@@ -187,7 +272,7 @@ public class UserManagementPanel extends JPanel {
         dialog.setVisible(true);
     }
 
-    private boolean validateUserInput(JTextField usernameField, JPasswordField passwordField,
+    private boolean validateUserInput(JTextField usernameField, JPasswordField passwordField, boolean passwordRequired,
                                       JTextField fullNameField, JTextField emailField) {
         if (usernameField.getText().trim().isEmpty()) {
             JOptionPane.showMessageDialog(this, "Username cannot be empty",
@@ -195,7 +280,7 @@ public class UserManagementPanel extends JPanel {
             return false;
         }
 
-        if (passwordField.getPassword().length == 0) {
+        if (passwordRequired && passwordField.getPassword().length == 0) {
             JOptionPane.showMessageDialog(this, "Password cannot be empty",
                     "Validation Error", JOptionPane.ERROR_MESSAGE);
             return false;
@@ -216,37 +301,31 @@ public class UserManagementPanel extends JPanel {
         return true;
     }
 
-    private void saveUser(User user) {
-        try (Connection conn = Database.getConnection()) {
+    private void saveUser(User user, String password) {
+        writeTask.run(() -> {
             // Check if username already exists
-            String checkSql = "SELECT id FROM users WHERE username = ?";
-            PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-            checkStmt.setString(1, user.getUsername());
-            ResultSet rs = checkStmt.executeQuery();
+            if (userRepository.existsByUsername(user.getUsername())) {
+                return false;
+            }
 
-            if (rs.next()) {
+            user.setPassword(AuthService.shared().hash(password));
+            userRepository.insert(user);
+            MemberIndex.shared().put(user);
+            return true;
+        }, saved -> {
+            if (saved) {
+                ChangeFeed.shared().pollNow();
+                JOptionPane.showMessageDialog(this, "User added successfully",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            } else {
                 JOptionPane.showMessageDialog(this, "Username already exists",
                         "Error", JOptionPane.ERROR_MESSAGE);
-                return;
             }
-
-            String sql = "INSERT INTO users (username, password, role, full_name, email) " +
-                    "VALUES (?, ?, ?, ?, ?)";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getPassword());
-            stmt.setString(3, user.getRole());
-            stmt.setString(4, user.getFullName());
-            stmt.setString(5, user.getEmail());
-
-            stmt.executeUpdate();
-            JOptionPane.showMessageDialog(this, "User added successfully",
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error saving user: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void showEditUserDialog() {
@@ -259,103 +338,95 @@ public class UserManagementPanel extends JPanel {
 
         int userId = (int) tableModel.getValueAt(selectedRow, 0);
 
-        try (Connection conn = Database.getConnection()) {
-            String sql = "SELECT * FROM users WHERE id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                User user = new User(
-                        rs.getString("username"),
-                        rs.getString("password"),
-                        rs.getString("role"),
-                        rs.getString("full_name"),
-                        rs.getString("email")
-                );
-                user.setId(userId);
-
-                JDialog dialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Edit User", true);
-                dialog.setSize(450, 350);
-                dialog.setLocationRelativeTo(this);
-
-                JPanel panel = new JPanel(new GridLayout(6, 2, 10, 10));
-                panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-                JTextField usernameField = new JTextField(user.getUsername());
-                JPasswordField passwordField = new JPasswordField();
-                passwordField.setText(user.getPassword()); // Show existing password (insecure for production)
-                JComboBox<String> roleComboBox = new JComboBox<>(new String[]{"admin", "librarian", "member"});
-                roleComboBox.setSelectedItem(user.getRole());
-                JTextField fullNameField = new JTextField(user.getFullName());
-                JTextField emailField = new JTextField(user.getEmail());
-
-                // Disable username editing (usernames should typically not be changed)
-                usernameField.setEnabled(false);
-
-                panel.add(new JLabel("Username:"));
-                panel.add(usernameField);
-                panel.add(new JLabel("Password:"));
-                panel.add(passwordField);
-                panel.add(new JLabel("Role:"));
-                panel.add(roleComboBox);
-                panel.add(new JLabel("Full Name:"));
-                panel.add(fullNameField);
-                panel.add(new JLabel("Email:"));
-                panel.add(emailField);
-
-                JButton saveButton = new JButton("Save");
-                styleButton(saveButton, "primary");
-                saveButton.addActionListener(e -> {
-                    if (validateUserInput(usernameField, passwordField, fullNameField, emailField)) {
-                        user.setPassword(new String(passwordField.getPassword()));
-                        user.setRole((String) roleComboBox.getSelectedItem());
-                        user.setFullName(fullNameField.getText());
-                        user.setEmail(emailField.getText());
-
-                        updateUser(user);
-                        dialog.dispose();
-                        loadUsers();
-                    }
-                });
-
-                JButton cancelButton = new JButton("Cancel");
-                styleButton(cancelButton, "secondary");
-                cancelButton.addActionListener(e -> dialog.dispose());
-
-                JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
-                buttonPanel.add(cancelButton);
-                buttonPanel.add(saveButton);
-
-                dialog.add(panel, BorderLayout.CENTER);
-                dialog.add(buttonPanel, BorderLayout.SOUTH);
-                dialog.setVisible(true);
+        writeTask.run(() -> userRepository.findByIdOnPrimary(userId), user -> {
+            if (user != null) {
+                openEditUserDialog(user);
             }
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error loading user details: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
-    private void updateUser(User user) {
-        try (Connection conn = Database.getConnection()) {
-            String sql = "UPDATE users SET password = ?, role = ?, full_name = ?, email = ? WHERE id = ?";
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, user.getPassword());
-            stmt.setString(2, user.getRole());
-            stmt.setString(3, user.getFullName());
-            stmt.setString(4, user.getEmail());
-            stmt.setInt(5, user.getId());
-
-            stmt.executeUpdate();
+    private void openEditUserDialog(User user) {
+        JDialog dialog = new JDialog((Frame)SwingUtilities.getWindowAncestor(this), "Edit User", true);
+        dialog.setSize(450, 350);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new GridLayout(6, 2, 10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JTextField usernameField = new JTextField(user.getUsername());
+        // Only a hash is stored, so the field starts empty and stays empty to keep the password
+        JPasswordField passwordField = new JPasswordField();
+        passwordField.setToolTipText("Leave empty to keep the current password");
+        JComboBox<String> roleComboBox = new JComboBox<>(new String[]{"admin", "librarian", "member"});
+        roleComboBox.setSelectedItem(user.getRole());
+        JTextField fullNameField = new JTextField(user.getFullName());
+        JTextField emailField = new JTextField(user.getEmail());
+
+        // Disable username editing (usernames should typically not be changed)
+        usernameField.setEnabled(false);
+
+        panel.add(new JLabel("Username:"));
+        panel.add(usernameField);
+        panel.add(new JLabel("Password:"));
+        panel.add(passwordField);
+        panel.add(new JLabel("Role:"));
+        panel.add(roleComboBox);
+        panel.add(new JLabel("Full Name:"));
+        panel.add(fullNameField);
+        panel.add(new JLabel("Email:"));
+        panel.add(emailField);
+
+        JButton saveButton = new JButton("Save");
+        styleButton(saveButton, "primary");
+        saveButton.addActionListener(e -> {
+            if (validateUserInput(usernameField, passwordField, false, fullNameField, emailField)) {
+                String newPassword = passwordField.getPassword().length > 0
+                        ? new String(passwordField.getPassword())
+                        : null;
+                user.setRole((String) roleComboBox.getSelectedItem());
+                user.setFullName(fullNameField.getText());
+                user.setEmail(emailField.getText());
+
+                updateUser(user, newPassword);
+                dialog.dispose();
+            }
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        styleButton(cancelButton, "secondary");
+        cancelButton.addActionListener(e -> dialog.dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(saveButton);
+
+        dialog.add(panel, BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setVisible(true);
+    }
+
+    // newPassword is null to keep the current one
+    private void updateUser(User user, String newPassword) {
+        writeTask.run(() -> {
+            if (newPassword != null) {
+                user.setPassword(AuthService.shared().hash(newPassword));
+            }
+            userRepository.update(user, newPassword != null);
+            MemberIndex.shared().put(user); // Also drops a member whose role changed
+            return user;
+        }, updated -> {
+            ChangeFeed.shared().pollNow();
             JOptionPane.showMessageDialog(this, "User updated successfully",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Error updating user: " + ex.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void deleteUser() {
@@ -381,35 +452,31 @@ public class UserManagementPanel extends JPanel {
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            try (Connection conn = Database.getConnection()) {
-                // First check if user has any active book loans
-                String checkLoansSql = "SELECT COUNT(*) FROM book_loans WHERE user_id = ? AND status = 'borrowed'";
-                PreparedStatement checkStmt = conn.prepareStatement(checkLoansSql);
-                checkStmt.setInt(1, userId);
-                ResultSet rs = checkStmt.executeQuery();
-
-                if (rs.next() && rs.getInt(1) > 0) {
+            writeTask.run(() -> {
+                // First check if user has any active book loans (one primary-key read)
+                if (userRepository.countActiveLoans(userId) > 0) {
+                    return null;
+                }
+                boolean deleted = userRepository.delete(userId);
+                if (deleted) {
+                    MemberIndex.shared().remove(userId);
+                }
+                return deleted;
+            }, deleted -> {
+                if (deleted == null) {
                     JOptionPane.showMessageDialog(this,
                             "Cannot delete user with active book loans. Please return all books first.",
                             "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                String sql = "DELETE FROM users WHERE id = ?";
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                stmt.setInt(1, userId);
-
-                int rowsAffected = stmt.executeUpdate();
-                if (rowsAffected > 0) {
+                } else if (deleted) {
                     JOptionPane.showMessageDialog(this, "User deleted successfully",
                             "Success", JOptionPane.INFORMATION_MESSAGE);
-                    loadUsers();
+                    ChangeFeed.shared().pollNow();
                 }
-            } catch (SQLException ex) {
+            }, ex -> {
                 ex.printStackTrace();
                 JOptionPane.showMessageDialog(this, "Error deleting user: " + ex.getMessage(),
                         "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 }
\ No newline at end of file